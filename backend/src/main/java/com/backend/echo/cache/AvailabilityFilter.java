@@ -0,0 +1,131 @@
+package com.backend.echo.cache;
+
+import com.backend.echo.entity.User;
+import com.backend.echo.repository.UserRepository;
+import com.backend.echo.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * Checagem de "username/email já usado" com filtro de Bloom na frente do banco.
+ * Negativo do filtro é definitivo e não consulta nada; positivo é confirmado no banco.
+ * Os valores entram normalizados (trim + minúsculas), então o filtro cobre qualquer
+ * collation do banco. A unique constraint continua sendo a garantia final.
+ *
+ * Nomes trocados continuam no filtro até o próximo restart (Bloom não remove); isso só
+ * aumenta os positivos que vão ao banco, acompanhados em echo.availability.checks.
+ *
+ * Filtro por nó: só recebe os cadastros feitos neste nó. Com vários nós, um nome criado em
+ * outro dá negativo aqui até o restart, e o conflito só aparece na unique constraint ao
+ * gravar; quem grava trata DataIntegrityViolationException como 409.
+ */
+@Component
+public class AvailabilityFilter {
+
+    private static final int LOAD_PAGE = 5000;
+
+    private final UserRepository userRepository;
+    private final Logger log = LoggerFactory.getLogger(AvailabilityFilter.class);
+
+    private final Field username;
+    private final Field email;
+    private volatile boolean ready; // antes da carga, tudo vai ao banco
+
+    public AvailabilityFilter(UserRepository userRepository,
+                              @Value("${app.availability.expected-users:1000000}") long expectedUsers,
+                              @Value("${app.availability.fpp:0.01}") double fpp,
+                              MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.username = new Field("username", new BloomFilter(expectedUsers, fpp), userRepository::existsByUsername, meterRegistry);
+        this.email = new Field("email", new BloomFilter(expectedUsers, fpp), userRepository::existsByEmail, meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long after = 0;
+        long total = 0;
+        while (true) {
+            List<Object[]> rows = userRepository.findCredentialRowsAfter(after, PageRequest.of(0, LOAD_PAGE));
+            for (Object[] r : rows) {
+                after = (Long) r[0];
+                username.filter.add(normalize((String) r[1]));
+                email.filter.add(normalize((String) r[2]));
+            }
+            total += rows.size();
+            if (rows.size() < LOAD_PAGE) break;
+        }
+        ready = true;
+        log.info("Filtro de disponibilidade carregado: {} usuários, {} KB por campo",
+                total, username.filter.sizeInBytes() / 1024);
+    }
+
+    public boolean usernameExists(String value) {
+        return username.exists(value);
+    }
+
+    public boolean emailExists(String value) {
+        return email.exists(value);
+    }
+
+    /** Cadastro ou alteração de perfil; chamar depois de gravar no banco. */
+    public void add(User user) {
+        username.filter.add(normalize(user.getUsername()));
+        email.filter.add(normalize(user.getEmail()));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private final class Field {
+        private final BloomFilter filter;
+        private final Predicate<String> database;
+        private final Counter negative;
+        private final Counter truePositive;
+        private final Counter falsePositive;
+
+        Field(String name, BloomFilter filter, Predicate<String> database, MeterRegistry meterRegistry) {
+            this.filter = filter;
+            this.database = database;
+            this.negative = Counter.builder("echo.availability.checks")
+                    .tag("field", name).tag("result", "negative").register(meterRegistry);
+            this.truePositive = Counter.builder("echo.availability.checks")
+                    .tag("field", name).tag("result", "true_positive").register(meterRegistry);
+            this.falsePositive = Counter.builder("echo.availability.checks")
+                    .tag("field", name).tag("result", "false_positive").register(meterRegistry);
+            Gauge.builder("echo.availability.fpp_expected", filter, BloomFilter::expectedFpp)
+                    .tag("field", name).register(meterRegistry);
+            // taxa observada: positivos que o banco desmentiu sobre todos os que eram livres de fato
+            Gauge.builder("echo.availability.fpp_observed", this, f -> {
+                        double fp = f.falsePositive.count();
+                        double free = fp + f.negative.count();
+                        return free == 0 ? 0 : fp / free;
+                    })
+                    .tag("field", name).register(meterRegistry);
+            Gauge.builder("echo.availability.memory", filter, BloomFilter::sizeInBytes)
+                    .tag("field", name).baseUnit("bytes").register(meterRegistry);
+        }
+
+        boolean exists(String value) {
+            if (ready && !filter.mightContain(normalize(value))) {
+                negative.increment();
+                return false;
+            }
+            boolean exists = database.test(value);
+            if (ready) (exists ? truePositive : falsePositive).increment();
+            return exists;
+        }
+    }
+}
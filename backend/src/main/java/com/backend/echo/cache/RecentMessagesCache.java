@@ -0,0 +1,277 @@
+package com.backend.echo.cache;
+
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.dto.MessagePageDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Últimas mensagens das conversas ativas, em um ring buffer por conversa (ordenado por id).
+ * Preenchido em toda escrita e completado pela primeira página lida do banco; as leituras
+ * do histórico são servidas daqui quando o buffer cobre a página pedida.
+ *
+ * O total é limitado por uma estimativa de bytes; acima do limite as conversas acessadas
+ * há mais tempo são removidas. O LRU aproximado é um relógio (segunda chance): as conversas
+ * ficam numa fila na ordem de criação, o acesso só marca a conversa, e a remoção tira da
+ * frente da fila a primeira não marcada, desmarcando e devolvendo ao fim as que estavam
+ * marcadas. Cada remoção custa O(1) amortizado e o acesso não disputa nenhum lock global.
+ */
+@Component
+public class RecentMessagesCache {
+
+    private final int perConversation;
+    private final long maxBytes;
+
+    private final ConcurrentHashMap<String, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final ConcurrentLinkedQueue<Map.Entry<String, Ring>> clock = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evicting = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public RecentMessagesCache(@Value("${app.cache.recent-messages.per-conversation:50}") int perConversation,
+                               @Value("${app.cache.recent-messages.max-bytes:67108864}") long maxBytes,
+                               MeterRegistry meterRegistry) {
+        this.perConversation = perConversation;
+        this.maxBytes = maxBytes;
+
+        FunctionCounter.builder("echo.recent_messages.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("echo.recent_messages.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("echo.recent_messages.bytes", totalBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("echo.recent_messages.conversations", rings, Map::size).register(meterRegistry);
+    }
+
+    /** Registra uma mensagem recém-gravada. */
+    public void append(String conversationKey, MessageDTO message) {
+        while (true) {
+            Ring ring = rings.computeIfAbsent(conversationKey, this::newRing);
+            long delta;
+            synchronized (ring) {
+                if (ring.evicted) continue; // removido entre o lookup e o lock
+                // a primeira mensagem não conta como acesso: conversa nova entra sem segunda chance
+                if (ring.size > 0) ring.touch();
+                delta = ring.insert(message);
+            }
+            account(delta);
+            return;
+        }
+    }
+
+    /**
+     * Página (mais recentes primeiro) com id &lt; before, ou null se o buffer não cobre o pedido
+     * e é preciso ir ao banco.
+     */
+    public MessagePageDTO page(String conversationKey, long before, int limit) {
+        Ring ring = rings.get(conversationKey);
+        MessagePageDTO page = null;
+        if (ring != null) {
+            synchronized (ring) {
+                ring.touch();
+                page = ring.page(before, limit);
+            }
+        }
+        if (page != null) hits.increment(); else misses.increment();
+        return page;
+    }
+
+    /**
+     * Mensagens com afterSeq &lt; seq &lt;= throughSeq, em ordem de seq (até {@code limit}), ou
+     * null se o buffer não garante ter todas e é preciso ir ao banco. É o caso comum do sync na
+     * reconexão; throughSeq é o ConversationSequences.durable, acima do qual ainda pode faltar
+     * mensagem de envio em andamento.
+     */
+    public List<MessageDTO> afterSeq(String conversationKey, long afterSeq, long throughSeq, int limit) {
+        Ring ring = rings.get(conversationKey);
+        List<MessageDTO> delta = null;
+        if (ring != null) {
+            synchronized (ring) {
+                ring.touch();
+                delta = ring.afterSeq(afterSeq, throughSeq, limit);
+            }
+        }
+        if (delta != null) hits.increment(); else misses.increment();
+        return delta;
+    }
+
+    /**
+     * Junta a página mais recente lida do banco (mais recentes primeiro). {@code complete}
+     * indica que não há mensagens mais antigas que as da página.
+     */
+    public void mergeLatest(String conversationKey, List<MessageDTO> newestFirst, boolean complete) {
+        while (true) {
+            Ring ring = rings.computeIfAbsent(conversationKey, this::newRing);
+            long delta;
+            synchronized (ring) {
+                if (ring.evicted) continue;
+                ring.touch();
+                delta = ring.merge(newestFirst, complete);
+            }
+            account(delta);
+            return;
+        }
+    }
+
+    private void account(long delta) {
+        if (totalBytes.addAndGet(delta) > maxBytes) evict();
+    }
+
+    // cria e entra no fim da fila do relógio (uma vez por conversa, dentro do computeIfAbsent)
+    private Ring newRing(String conversationKey) {
+        Ring ring = new Ring(perConversation);
+        clock.add(Map.entry(conversationKey, ring));
+        return ring;
+    }
+
+    // remove até ficar em 90% do limite, para amortizar; quem chega com outra remoção em
+    // andamento não espera por ela
+    private void evict() {
+        if (!evicting.tryLock()) return;
+        try {
+            long target = maxBytes - maxBytes / 10;
+            Map.Entry<String, Ring> e;
+            while (totalBytes.get() > target && (e = clock.poll()) != null) {
+                Ring ring = e.getValue();
+                if (ring.referenced) {
+                    ring.referenced = false; // segunda chance
+                    clock.add(e);
+                    continue;
+                }
+                rings.remove(e.getKey(), ring);
+                synchronized (ring) {
+                    ring.evicted = true;
+                    totalBytes.addAndGet(-ring.bytes);
+                    ring.bytes = 0;
+                }
+            }
+        } finally {
+            evicting.unlock();
+        }
+    }
+
+    // estimativa grosseira do custo de um MessageDTO no heap
+    static long estimateBytes(MessageDTO m) {
+        long chars = (m.getContent() != null ? m.getContent().length() : 0)
+                + (m.getMediaUrl() != null ? m.getMediaUrl().length() : 0);
+        return 160 + 2 * chars;
+    }
+
+    /** Buffer circular ordenado por id; guardado pelo próprio monitor. */
+    private static final class Ring {
+        private final MessageDTO[] buf;
+        private int head;  // índice do mais antigo
+        private int size;
+        private boolean complete; // não existe nada mais antigo que buf[head] no banco
+        private int dropped;      // mensagens descartadas por falta de espaço
+        private long bytes;
+        private boolean evicted;
+        private volatile boolean referenced;
+
+        Ring(int capacity) {
+            this.buf = new MessageDTO[capacity];
+        }
+
+        void touch() {
+            referenced = true;
+        }
+
+        private MessageDTO at(int i) {
+            return buf[(head + i) % buf.length];
+        }
+
+        private void set(int i, MessageDTO m) {
+            buf[(head + i) % buf.length] = m;
+        }
+
+        // insere em ordem de id (quase sempre no fim); devolve a variação de bytes
+        long insert(MessageDTO m) {
+            long id = m.getId();
+            int pos = size;
+            while (pos > 0 && at(pos - 1).getId() > id) pos--;
+            if (pos > 0 && at(pos - 1).getId() == id) return 0; // já presente
+
+            long delta = estimateBytes(m);
+            if (size == buf.length) {
+                if (pos == 0) {
+                    // mais antiga que toda a janela
+                    dropped++;
+                    complete = false;
+                    return 0;
+                }
+                // descarta o mais antigo para abrir espaço
+                delta -= estimateBytes(at(0));
+                buf[head] = null;
+                head = (head + 1) % buf.length;
+                size--;
+                pos--;
+                dropped++;
+                complete = false;
+            }
+            for (int i = size; i > pos; i--) set(i, at(i - 1));
+            set(pos, m);
+            size++;
+            bytes += delta;
+            return delta;
+        }
+
+        long merge(List<MessageDTO> newestFirst, boolean completeHistory) {
+            long delta = 0;
+            int droppedBefore = dropped;
+            for (MessageDTO m : newestFirst) delta += insert(m);
+            // o histórico inteiro coube sem descartes: o buffer responde qualquer página
+            if (completeHistory && dropped == droppedBefore) complete = true;
+            return delta;
+        }
+
+        List<MessageDTO> afterSeq(long afterSeq, long throughSeq, int limit) {
+            if (size == 0) return complete ? new ArrayList<>() : null;
+            if (at(size - 1).getSeq() == null) return null; // só mensagens de antes da sequência
+            List<MessageDTO> out = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Long seq = at(i).getSeq();
+                if (seq != null && seq > afterSeq && seq <= throughSeq) out.add(at(i));
+            }
+            // ordem de id e de seq só divergem entre envios simultâneos na mesma conversa
+            out.sort(Comparator.comparingLong(MessageDTO::getSeq));
+            if (out.size() > limit) out = new ArrayList<>(out.subList(0, limit));
+            if (!complete) {
+                // sem buraco a partir do cursor: nada do que saiu do buffer pertence ao delta
+                long expected = afterSeq + 1;
+                for (MessageDTO m : out) {
+                    if (m.getSeq() != expected++) return null;
+                }
+            }
+            return out;
+        }
+
+        MessagePageDTO page(long before, int limit) {
+            List<MessageDTO> out = new ArrayList<>(Math.min(limit, size));
+            int i = size - 1;
+            while (i >= 0 && at(i).getId() >= before) i--;
+            while (i >= 0 && out.size() < limit) out.add(at(i--));
+
+            boolean olderInRing = i >= 0;
+            if (out.size() < limit && !complete) return null; // faltam mensagens que só o banco tem
+            boolean hasMore = olderInRing || !complete;
+            return MessagePageDTO.builder()
+                    .messages(out)
+                    .nextBefore(hasMore && !out.isEmpty() ? out.get(out.size() - 1).getId() : null)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.backend.echo.cache;
+
+import com.backend.echo.repository.BlockRepository;
+import com.backend.echo.repository.FriendshipRepository;
+import com.backend.echo.repository.MuteRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Grafo social em memória (amizades, bloqueios e silenciados) usado no caminho quente do chat.
+ * Cada usuário tem listas de adjacência em long[] ordenados; a entrada é carregada
+ * do banco no primeiro acesso e mantida coerente pelo FriendServiceImpl.
+ */
+@Component
+public class SocialGraphCache {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final FriendshipRepository friendshipRepository;
+    private final BlockRepository blockRepository;
+    private final MuteRepository muteRepository;
+
+    private final ConcurrentHashMap<Long, Adjacency> graph = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SocialGraphCache(FriendshipRepository friendshipRepository,
+                            BlockRepository blockRepository,
+                            MuteRepository muteRepository,
+                            MeterRegistry meterRegistry) {
+        this.friendshipRepository = friendshipRepository;
+        this.blockRepository = blockRepository;
+        this.muteRepository = muteRepository;
+
+        FunctionCounter.builder("echo.social_graph.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("echo.social_graph.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("echo.social_graph.users", graph, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    // cópia: quem chama pode iterar sem se preocupar com mutações
+    public long[] friendsOf(long userId) {
+        return adjacency(userId).friends.clone();
+    }
+
+    // sem cópia, para laços que leem muitas listas (sugestões): o array devolvido nunca
+    // é alterado (cópia na escrita), mas quem chama também não pode alterá-lo
+    public long[] friendsView(long userId) {
+        return adjacency(userId).friends;
+    }
+
+    public boolean areFriends(long a, long b) {
+        return contains(adjacency(a).friends, b);
+    }
+
+    // bloqueio em qualquer direção
+    public boolean isBlockedEitherWay(long a, long b) {
+        Adjacency adj = adjacency(a);
+        return contains(adj.blocking, b) || contains(adj.blockedBy, b);
+    }
+
+    // owner silenciou target
+    public boolean isMuting(long owner, long target) {
+        return contains(adjacency(owner).muting, target);
+    }
+
+    public long[] mutedBy(long owner) {
+        return adjacency(owner).muting.clone();
+    }
+
+    // Mutações: devem ser chamadas depois que a alteração foi gravada no banco.
+    // Só atualizam entradas já carregadas; as demais serão lidas do banco no próximo acesso.
+
+    public void friendshipAdded(long a, long b) {
+        graph.computeIfPresent(a, (k, adj) -> adj.withFriends(insert(adj.friends, b)));
+        graph.computeIfPresent(b, (k, adj) -> adj.withFriends(insert(adj.friends, a)));
+    }
+
+    public void friendshipRemoved(long a, long b) {
+        graph.computeIfPresent(a, (k, adj) -> adj.withFriends(remove(adj.friends, b)));
+        graph.computeIfPresent(b, (k, adj) -> adj.withFriends(remove(adj.friends, a)));
+    }
+
+    public void blockAdded(long blocker, long blocked) {
+        graph.computeIfPresent(blocker, (k, adj) -> adj.withBlocking(insert(adj.blocking, blocked)));
+        graph.computeIfPresent(blocked, (k, adj) -> adj.withBlockedBy(insert(adj.blockedBy, blocker)));
+    }
+
+    public void blockRemoved(long blocker, long blocked) {
+        graph.computeIfPresent(blocker, (k, adj) -> adj.withBlocking(remove(adj.blocking, blocked)));
+        graph.computeIfPresent(blocked, (k, adj) -> adj.withBlockedBy(remove(adj.blockedBy, blocker)));
+    }
+
+    public void muteChanged(long owner, long target, boolean muted) {
+        graph.computeIfPresent(owner, (k, adj) ->
+                adj.withMuting(muted ? insert(adj.muting, target) : remove(adj.muting, target)));
+    }
+
+    public void invalidate(long userId) {
+        graph.remove(userId);
+    }
+
+    private Adjacency adjacency(long userId) {
+        Adjacency adj = graph.get(userId);
+        if (adj != null) {
+            hits.increment();
+            return adj;
+        }
+        misses.increment();
+        // computeIfAbsent segura o bin durante a carga, então uma mutação concorrente
+        // na mesma chave espera e é aplicada sobre o resultado carregado
+        return graph.computeIfAbsent(userId, this::load);
+    }
+
+    private Adjacency load(Long userId) {
+        return new Adjacency(
+                toSortedArray(friendshipRepository.findFriendIds(userId)),
+                toSortedArray(blockRepository.findBlockedIds(userId)),
+                toSortedArray(blockRepository.findBlockerIds(userId)),
+                toSortedArray(muteRepository.findMutedIds(userId)));
+    }
+
+    private static long[] toSortedArray(Collection<Long> ids) {
+        if (ids.isEmpty()) return EMPTY;
+        return ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+
+    private static boolean contains(long[] sorted, long id) {
+        return Arrays.binarySearch(sorted, id) >= 0;
+    }
+
+    // cópia na escrita: os arrays publicados nunca são alterados
+    private static long[] insert(long[] sorted, long id) {
+        int idx = Arrays.binarySearch(sorted, id);
+        if (idx >= 0) return sorted;
+        int pos = -idx - 1;
+        long[] out = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, out, 0, pos);
+        out[pos] = id;
+        System.arraycopy(sorted, pos, out, pos + 1, sorted.length - pos);
+        return out;
+    }
+
+    private static long[] remove(long[] sorted, long id) {
+        int idx = Arrays.binarySearch(sorted, id);
+        if (idx < 0) return sorted;
+        if (sorted.length == 1) return EMPTY;
+        long[] out = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, out, 0, idx);
+        System.arraycopy(sorted, idx + 1, out, idx, sorted.length - idx - 1);
+        return out;
+    }
+
+    private record Adjacency(long[] friends, long[] blocking, long[] blockedBy, long[] muting) {
+        Adjacency withFriends(long[] f) { return new Adjacency(f, blocking, blockedBy, muting); }
+        Adjacency withBlocking(long[] b) { return new Adjacency(friends, b, blockedBy, muting); }
+        Adjacency withBlockedBy(long[] b) { return new Adjacency(friends, blocking, b, muting); }
+        Adjacency withMuting(long[] m) { return new Adjacency(friends, blocking, blockedBy, m); }
+    }
+}
@@ -0,0 +1,279 @@
+package com.backend.echo.cache;
+
+import com.backend.echo.entity.User;
+import com.backend.echo.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Índice em memória dos usernames para o typeahead. Prefixo sai de um mapa ordenado
+ * (username em minúsculas); substring, a partir de 3 caracteres, sai da interseção das
+ * listas de trigramas (long[] ordenados, cópia na escrita como no SocialGraphCache) e
+ * é conferida no username. Nenhuma consulta vai ao banco.
+ *
+ * Carregado no ApplicationReadyEvent e mantido pelo cadastro e pela edição de perfil.
+ * Enquanto a carga inicial não termina, as buscas podem vir incompletas.
+ *
+ * Feito para um nó. Com vários, cada nó só vê na hora as alterações feitas nele; usuários
+ * cadastrados em outro nó entram pela releitura a cada {@code app.user-search.refresh-ms}
+ * (ids acima do último lido), mas troca de username ou avatar feita em outro nó só aparece
+ * aqui depois de reiniciar.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int LOAD_PAGE = 5000;
+
+    private final UserRepository userRepository;
+    private final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private final ConcurrentHashMap<Long, Card> cards = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Long> byName = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, long[]> trigrams = new ConcurrentHashMap<>();
+    private final Timer queryTimer;
+    private final long refreshMs;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "user-search-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile long lastSeenId; // maior id já lido do banco (carga ou releitura)
+
+    public UserSearchIndex(UserRepository userRepository,
+                           @Value("${app.user-search.refresh-ms:60000}") long refreshMs,
+                           MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.refreshMs = refreshMs;
+        Gauge.builder("echo.user_search.users", cards, ConcurrentHashMap::size).register(meterRegistry);
+        Gauge.builder("echo.user_search.trigrams", trigrams, ConcurrentHashMap::size).register(meterRegistry);
+        this.queryTimer = Timer.builder("echo.user_search.query").register(meterRegistry);
+    }
+
+    /** Dados que o typeahead devolve, sem ir ao banco. */
+    public record Card(long id, String username, String avatarUrl) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // lê tudo antes e publica de uma vez: inserir id a id copiaria as listas grandes a cada usuário
+        List<Card> loaded = new ArrayList<>();
+        long after = 0;
+        while (true) {
+            List<Object[]> rows = userRepository.findSearchRowsAfter(after, PageRequest.of(0, LOAD_PAGE));
+            for (Object[] r : rows) loaded.add(new Card((Long) r[0], (String) r[1], (String) r[2]));
+            if (rows.size() < LOAD_PAGE) break;
+            after = loaded.get(loaded.size() - 1).id();
+        }
+
+        synchronized (this) {
+            HashMap<String, LongBuffer> pending = new HashMap<>();
+            for (Card c : loaded) {
+                // quem foi cadastrado/alterado durante a carga já está com o dado mais novo
+                if (cards.putIfAbsent(c.id(), c) != null) continue;
+                String lower = lower(c.username());
+                byName.put(key(lower, c.id()), c.id());
+                for (String g : grams(lower)) pending.computeIfAbsent(g, k -> new LongBuffer()).add(c.id());
+            }
+            // ids vêm em ordem crescente; une com o que put() já tiver publicado
+            pending.forEach((g, buf) -> trigrams.merge(g, buf.toArray(), UserSearchIndex::union));
+        }
+        if (!loaded.isEmpty()) lastSeenId = loaded.get(loaded.size() - 1).id();
+        log.info("Índice de busca de usuários carregado: {} usuários, {} trigramas", loaded.size(), trigrams.size());
+        if (refreshMs > 0) {
+            refresher.scheduleWithFixedDelay(this::refresh, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // usuários novos vindos de outros nós; quem já está no índice fica como está
+    void refresh() {
+        try {
+            while (true) {
+                List<Object[]> rows = userRepository.findSearchRowsAfter(lastSeenId, PageRequest.of(0, LOAD_PAGE));
+                for (Object[] r : rows) {
+                    put((Long) r[0], (String) r[1], (String) r[2], false);
+                    lastSeenId = (Long) r[0];
+                }
+                if (rows.size() < LOAD_PAGE) return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao reler usuários novos para o índice de busca", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /** Cartão do usuário, ou null se ainda não estiver no índice (carga em andamento). */
+    public Card card(long id) {
+        return cards.get(id);
+    }
+
+    /** Cadastro ou alteração de perfil; chamar depois de gravar no banco. */
+    public void put(User user) {
+        put(user.getId(), user.getUsername(), user.getAvatarUrl(), true);
+    }
+
+    private void put(long id, String username, String avatarUrl, boolean replace) {
+        Card card = new Card(id, username, avatarUrl);
+        synchronized (this) {
+            Card old = cards.get(id);
+            if (old != null && !replace) return;
+            cards.put(id, card);
+            if (old != null && old.username().equals(username)) return; // só o avatar mudou
+            if (old != null) unindex(old);
+            String lower = lower(username);
+            byName.put(key(lower, id), id);
+            for (String g : grams(lower)) trigrams.merge(g, new long[]{id}, (cur, one) -> insert(cur, id));
+        }
+    }
+
+    // chamado com o lock
+    private void unindex(Card card) {
+        String lower = lower(card.username());
+        byName.remove(key(lower, card.id()));
+        for (String g : grams(lower)) {
+            trigrams.computeIfPresent(g, (k, cur) -> {
+                long[] next = remove(cur, card.id());
+                return next.length == 0 ? null : next;
+            });
+        }
+    }
+
+    /**
+     * Até {@code limit} usuários cujo username começa com {@code query} (primeiro) ou
+     * contém {@code query} (a partir de 3 caracteres), sem o próprio {@code excludeId}.
+     */
+    public List<Card> search(String query, int limit, long excludeId) {
+        long start = System.nanoTime();
+        try {
+            String q = query == null ? "" : lower(query.trim());
+            if (q.isEmpty() || limit <= 0) return List.of();
+
+            Set<Long> found = new LinkedHashSet<>();
+            for (Long id : byName.subMap(q, q + Character.MAX_VALUE).values()) {
+                if (found.size() >= limit) break;
+                if (id != excludeId) found.add(id);
+            }
+            if (found.size() < limit && q.length() >= 3) substring(q, limit, excludeId, found);
+
+            List<Card> out = new ArrayList<>(found.size());
+            for (Long id : found) {
+                Card c = cards.get(id);
+                if (c != null) out.add(c);
+            }
+            return out;
+        } finally {
+            queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void substring(String q, int limit, long excludeId, Set<Long> found) {
+        Set<String> grams = grams(q);
+        long[][] lists = new long[grams.size()][];
+        int i = 0;
+        for (String g : grams) {
+            long[] ids = trigrams.get(g);
+            if (ids == null) return; // algum trigrama não existe: nenhum username contém q
+            lists[i++] = ids;
+        }
+        // percorre a menor lista e confere nas outras por busca binária
+        Arrays.sort(lists, Comparator.comparingInt(a -> a.length));
+        outer:
+        for (long id : lists[0]) {
+            if (id == excludeId || found.contains(id)) continue;
+            for (int j = 1; j < lists.length; j++) {
+                if (Arrays.binarySearch(lists[j], id) < 0) continue outer;
+            }
+            Card c = cards.get(id);
+            // trigramas batem mas podem estar fora de ordem: confere a substring de fato
+            if (c == null || !lower(c.username()).contains(q)) continue;
+            found.add(id);
+            if (found.size() >= limit) return;
+        }
+    }
+
+    private static String key(String lower, long id) {
+        return lower + '\0' + id; // usernames só diferem por caixa: a chave precisa ser única
+    }
+
+    private static String lower(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String lower) {
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= lower.length(); i++) out.add(lower.substring(i, i + 3));
+        return out;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            long next = j >= b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (n == 0 || out[n - 1] != next) out[n++] = next;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    // cópia na escrita: os arrays publicados nunca são alterados
+    private static long[] insert(long[] sorted, long id) {
+        int idx = Arrays.binarySearch(sorted, id);
+        if (idx >= 0) return sorted;
+        int pos = -idx - 1;
+        long[] out = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, out, 0, pos);
+        out[pos] = id;
+        System.arraycopy(sorted, pos, out, pos + 1, sorted.length - pos);
+        return out;
+    }
+
+    private static long[] remove(long[] sorted, long id) {
+        int idx = Arrays.binarySearch(sorted, id);
+        if (idx < 0) return sorted;
+        if (sorted.length == 1) return EMPTY;
+        long[] out = new long[sorted.length - 1];
+        System.arraycopy(sorted, 0, out, 0, idx);
+        System.arraycopy(sorted, idx + 1, out, idx, sorted.length - idx - 1);
+        return out;
+    }
+
+    private static final class LongBuffer {
+        private long[] data = new long[4];
+        private int size;
+
+        void add(long v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
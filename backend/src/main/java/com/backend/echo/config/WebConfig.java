@@ -1,16 +0,0 @@
-// java
-// backend/src/main/java/com/example/messenger/config/WebConfig.java
-package com.backend.echo.config;
-
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.*;
-
-@Configuration
-public class WebConfig implements WebMvcConfigurer {
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/")
-                .setCachePeriod(3600);
-    }
-}
\ No newline at end of file
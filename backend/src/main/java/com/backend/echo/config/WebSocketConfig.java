@@ -1,10 +1,17 @@
 package com.backend.echo.config;
 
+import com.backend.echo.websocket.OutboundBackpressure;
+import com.backend.echo.websocket.SessionLivenessMonitor;
 import com.backend.echo.websocket.StompAuthChannelInterceptor;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
@@ -15,29 +22,81 @@ import org.springframework.web.socket.config.annotation.*;
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final SessionLivenessMonitor sessionLivenessMonitor;
+    private final OutboundBackpressure outboundBackpressure;
     private final Logger log = LoggerFactory.getLogger(WebSocketConfig.class);
 
+    @Value("${app.presence.heartbeat-ms:10000}")
+    private long heartbeatMs;
+    // mesmo interruptor do Tomcat (Spring Boot): liga threads virtuais nos canais STOMP
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    @Value("${app.websocket.virtual.max-concurrency:1000}")
+    private int virtualMaxConcurrency;
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy TaskScheduler messageBrokerTaskScheduler) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // In development allow the Vite origin; if you still have CORS issues try "*"
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("http://localhost:5182", "http://127.0.0.1:5182", "http://localhost:5173", "*")
                 .withSockJS();
+        // frames de uma sessão são processados em ordem, um de cada vez, em qualquer executor
+        registry.setPreserveReceiveOrder(true);
 
         log.info("STOMP endpoint registered at /ws (SockJS), allowed origins: http://localhost:5182, *");
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        // /queue atende os destinos por usuário (/user/queue/...), ex.: presença dos amigos
+        // heartbeats nos dois sentidos: o cliente passa a enviá-los e o SessionLivenessMonitor os observa
+        registry.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         registry.setApplicationDestinationPrefixes("/app");
-        log.info("Message broker configured: simple broker '/topic', app prefix '/app'");
+        registry.setPreservePublishOrder(true);
+        log.info("Message broker configured: simple broker '/topic' and '/queue', app prefix '/app', heartbeat {} ms", heartbeatMs);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(sessionLivenessMonitor::decorate);
+        // o mais externo: o STOMP só enxerga a sessão com fila de saída limitada
+        registration.addDecoratorFactory(outboundBackpressure::decorate);
+        // limites do buffer do próprio Spring iguais aos da fila (na prática ele fica vazio)
+        registration.setSendBufferSizeLimit(outboundBackpressure.bufferBytes());
+        registration.setSendTimeLimit(outboundBackpressure.sendTimeMs());
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         // interceptor typically validates CONNECT headers (Authorization). If you debug, temporarily disable it.
-        registration.interceptors(stompAuthChannelInterceptor);
-        log.info("StompAuthChannelInterceptor registered on inbound channel");
+        registration.interceptors(stompAuthChannelInterceptor, sessionLivenessMonitor);
+        if (virtualThreads) registration.taskExecutor(virtualExecutor("ws-inbound-"));
+        log.info("StompAuthChannelInterceptor and SessionLivenessMonitor registered on inbound channel ({} threads)",
+                virtualThreads ? "virtual" : "platform");
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) registration.taskExecutor(virtualExecutor("ws-outbound-"));
+    }
+
+    // pool cujas threads são virtuais: o tamanho só limita tarefas simultâneas; o que pesa
+    // (banco) tem limite próprio em DbPermits. O brokerChannel segue síncrono (padrão).
+    private ThreadPoolTaskExecutor virtualExecutor(String prefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(Thread.ofVirtual().name(prefix, 0).factory());
+        executor.setCorePoolSize(virtualMaxConcurrency);
+        executor.setMaxPoolSize(virtualMaxConcurrency);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(10);
+        return executor;
     }
 }
\ No newline at end of file
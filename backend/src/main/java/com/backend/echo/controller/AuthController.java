@@ -1,16 +1,19 @@
 package com.backend.echo.controller;
 
+import com.backend.echo.cache.AvailabilityFilter;
+import com.backend.echo.cache.UserSearchIndex;
 import com.backend.echo.dto.AuthenticationRequest;
 import com.backend.echo.dto.AuthenticationResponse;
 import com.backend.echo.dto.RegisterRequest;
 import com.backend.echo.entity.User;
 import com.backend.echo.repository.UserRepository;
 import com.backend.echo.security.JwtUtil;
+import com.backend.echo.security.PasswordHashing;
 import com.backend.echo.security.Role;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -19,8 +22,10 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashing passwordHashing;
     private final JwtUtil jwtUtil;
+    private final UserSearchIndex searchIndex;
+    private final AvailabilityFilter availability;
 
     @PostMapping(value = "/register", consumes = "application/json", produces = "application/json")
     public ResponseEntity<AuthenticationResponse> register(@RequestBody RegisterRequest request) {
@@ -31,12 +36,12 @@ public class AuthController {
                     .body(new AuthenticationResponse("Dados obrigatórios ausentes"));
         }
 
-        if (userRepository.existsByUsername(request.getUsername())) {
+        if (availability.usernameExists(request.getUsername())) {
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(new AuthenticationResponse("Username já existe"));
         }
 
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (availability.emailExists(request.getEmail())) {
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(new AuthenticationResponse("Email já cadastrado"));
         }
@@ -51,14 +56,22 @@ public class AuthController {
         User user = User.builder()
                 .username(request.getUsername().trim())
                 .email(request.getEmail().trim())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHashing.encode(request.getPassword()))
                 .role(role)
                 .avatarUrl(request.getAvatarUrl() != null ? request.getAvatarUrl() : "")
                 .build();
 
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // cadastrado em outro nó (o filtro é local) ou em paralelo: a unique decide
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new AuthenticationResponse("Username ou email já cadastrado"));
+        }
+        searchIndex.put(user);
+        availability.add(user);
 
-        String token = jwtUtil.generateToken(user.getUsername());
+        String token = jwtUtil.generateToken(user);
         return ResponseEntity.status(HttpStatus.CREATED).body(new AuthenticationResponse(token));
     }
 
@@ -77,12 +90,18 @@ public class AuthController {
         }
 
         var user = userOpt.get();
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        var verification = passwordHashing.verify(request.getPassword(), user.getPassword());
+        if (!verification.matches()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new AuthenticationResponse("Usuário ou senha inválidos"));
         }
+        if (verification.rehash() != null) {
+            // custo do bcrypt mudou desde o cadastro: troca o hash enquanto temos a senha
+            user.setPassword(verification.rehash());
+            userRepository.save(user);
+        }
 
-        String token = jwtUtil.generateToken(user.getUsername());
+        String token = jwtUtil.generateToken(user);
         return ResponseEntity.ok(new AuthenticationResponse(token));
     }
 
@@ -1,8 +1,13 @@
 package com.backend.echo.controller;
 
 import com.backend.echo.dto.ChatMessageDto;
+import com.backend.echo.dto.ConversationSyncDTO;
 import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.dto.SyncRequestDTO;
+import com.backend.echo.persistence.DbPermits;
 import com.backend.echo.service.ChatService;
+import com.backend.echo.service.ConversationService;
+import com.backend.echo.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
@@ -11,22 +16,35 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
+import java.util.List;
 
 @Controller
 @RequiredArgsConstructor
 public class ChatController {
     private final SimpMessagingTemplate messagingTemplate;
     private final ChatService chatService;
+    private final ConversationService conversationService;
+    private final DbPermits dbPermits;
 
     @MessageMapping("/chat/{conversationId}")
     public void send(@DestinationVariable String conversationId,
                      @Payload ChatMessageDto dto,
                      Principal principal) {
         // identifica remetente pelo Principal autenticado no WS
-        MessageDTO saved = chatService.processIncoming(conversationId, dto, principal.getName());
+        // o handler bloqueia no banco: limita quantos fazem isso ao mesmo tempo
+        Long senderId = SecurityUtils.userId(principal);
+        MessageDTO saved = dbPermits.call(() -> chatService.processIncoming(conversationId, dto, senderId));
 
         // publica no tópico canônico da conversa (mesmo para os dois lados)
         String topic = chatService.conversationTopic(saved.getSenderId(), saved.getReceiverId());
         messagingTemplate.convertAndSend(topic, saved);
     }
-}
\ No newline at end of file
+
+    // mesmo delta de POST /conversations/sync, pelo socket já aberto; resposta em /user/queue/sync
+    @MessageMapping("/sync")
+    public void sync(@Payload SyncRequestDTO request, Principal principal) {
+        Long userId = SecurityUtils.userId(principal);
+        List<ConversationSyncDTO> delta = dbPermits.call(() -> conversationService.sync(userId, request));
+        messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/sync", delta);
+    }
+}
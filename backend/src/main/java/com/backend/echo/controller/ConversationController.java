@@ -0,0 +1,53 @@
+package com.backend.echo.controller;
+
+import com.backend.echo.dto.ConversationDTO;
+import com.backend.echo.dto.ConversationSyncDTO;
+import com.backend.echo.dto.MessagePageDTO;
+import com.backend.echo.dto.SyncRequestDTO;
+import com.backend.echo.service.ConversationService;
+import com.backend.echo.util.SecurityUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/conversations")
+@RequiredArgsConstructor
+public class ConversationController {
+
+    private final ConversationService conversationService;
+
+    // lista de conversas; "before" é o lastMessageId do último item da página anterior
+    @GetMapping
+    public List<ConversationDTO> inbox(@RequestParam(required = false) Long before,
+                                       @RequestParam(defaultValue = "30") int limit) {
+        return conversationService.inbox(before, limit);
+    }
+
+    @PostMapping("/{peerId}/read")
+    public ResponseEntity<?> markRead(@PathVariable Long peerId) {
+        conversationService.markRead(peerId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{peerId}/messages")
+    public MessagePageDTO messages(@PathVariable Long peerId,
+                                   @RequestParam(required = false) Long before,
+                                   @RequestParam(defaultValue = "50") int limit) {
+        return conversationService.history(peerId, before, limit);
+    }
+
+    // reconexão: só as mensagens depois da última seq que o cliente tem de cada conversa
+    @PostMapping("/sync")
+    public List<ConversationSyncDTO> sync(@RequestBody SyncRequestDTO request) {
+        return conversationService.sync(SecurityUtils.currentUserId(), request);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> invalid(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+}
@@ -1,14 +1,20 @@
 package com.backend.echo.controller;
 
+import com.backend.echo.dto.FriendPageDTO;
+import com.backend.echo.dto.FriendRequestPageDTO;
 import com.backend.echo.entity.Block;
 import com.backend.echo.entity.FriendRequest;
 import com.backend.echo.entity.Friendship;
-import com.backend.echo.entity.User;
 import com.backend.echo.service.FriendService;
+import com.backend.echo.service.SuggestionService;
+import com.backend.echo.util.SecurityUtils;
+import com.backend.echo.websocket.DeliveryGate;
+import com.backend.echo.websocket.FanOutPublisher;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -22,40 +28,52 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class FriendController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final FriendService friendService;
+    private final SuggestionService suggestionService;
     private final SimpMessagingTemplate messaging;
+    private final FanOutPublisher fanOut;
+    private final DeliveryGate deliveryGate;
 
     @PostMapping("/requests")
     public ResponseEntity<?> sendRequest(@RequestParam Long toUserId) {
         FriendRequest fr = friendService.createRequest(toUserId);
 
-        // Notificação em tempo real
-        messaging.convertAndSend("/topic/notifications/" + fr.getReceiver().getId(),
-                Map.of("type", "FRIEND_REQUEST", "requestId", fr.getId(),
-                        "fromUsername", fr.getRequester().getUsername(),
-                        "fromId", fr.getRequester().getId()));
+        // Notificação em tempo real; o pedido fica gravado mesmo se quem recebe silenciou quem pediu
+        if (deliveryGate.check("FRIEND_REQUEST", fr.getReceiver().getId(), fr.getRequester().getId())
+                == DeliveryGate.Verdict.DELIVER) {
+            messaging.convertAndSend("/topic/notifications/" + fr.getReceiver().getId(),
+                    Map.of("type", "FRIEND_REQUEST", "requestId", fr.getId(),
+                            "fromUsername", fr.getRequester().getUsername(),
+                            "fromId", fr.getRequester().getId()));
+        }
 
         return ResponseEntity.ok().build();
     }
 
+    // pedidos recebidos pendentes, paginados por id; "after" é o nextAfter da página anterior
     @GetMapping("/requests")
-    public List<FriendRequest> pending() {
-        return friendService.pendingForCurrentUser();
+    public FriendRequestPageDTO pending(@RequestParam(required = false) Long after,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        return friendService.pendingForCurrentUser(after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
     }
 
     @PostMapping("/requests/{id}/accept")
     public ResponseEntity<?> accept(@PathVariable Long id) {
         Friendship fs = friendService.accept(id);
 
-        messaging.convertAndSend("/topic/notifications/" + fs.getUser1().getId(),
-                Map.of("type", "FRIEND_ACCEPTED",
-                        "friendshipId", fs.getId(),
-                        "message", "Você agora é amigo!"));
-
-        messaging.convertAndSend("/topic/notifications/" + fs.getUser2().getId(),
-                Map.of("type", "FRIEND_ACCEPTED",
-                        "friendshipId", fs.getId(),
-                        "message", "Você agora é amigo!"));
+        // mesmo payload para os dois lados: serializa uma vez
+        Message<byte[]> accepted = fanOut.prepare(Map.of("type", "FRIEND_ACCEPTED",
+                "friendshipId", fs.getId(),
+                "message", "Você agora é amigo!"));
+        long me = SecurityUtils.currentUserId();
+        long other = fs.getUser1().getId() == me ? fs.getUser2().getId() : fs.getUser1().getId();
+        fanOut.send("/topic/notifications/" + me, accepted);
+        if (deliveryGate.check("FRIEND_ACCEPTED", other, me) == DeliveryGate.Verdict.DELIVER) {
+            fanOut.send("/topic/notifications/" + other, accepted);
+        }
 
         return ResponseEntity.ok().build();
     }
@@ -99,25 +117,26 @@ public class FriendController {
         return friendService.myMutedIds();
     }
 
+    // amigos paginados por id; "after" é o nextAfter da página anterior
     @GetMapping("/list")
-    public List<FriendPublicDto> myFriends() {
-        return friendService.myFriends().stream()
-                .map(u -> {
-                    String avatarUrl = u.getAvatarUrl();
-                    // If entity has no public avatar URL, build a public URL to /media/avatar/{userId}
-                    if (avatarUrl == null || avatarUrl.isBlank()) {
-                        avatarUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
-                                .path("/media/avatar/")
-                                .path(String.valueOf(u.getId()))
-                                .toUriString();
-                    }
-                    return FriendPublicDto.builder()
-                            .id(u.getId())
-                            .username(u.getUsername())
-                            .email(u.getEmail())
-                            .avatarUrl(avatarUrl)
-                            .build();
-                })
+    public FriendPageDTO myFriends(@RequestParam(required = false) Long after,
+                                   @RequestParam(defaultValue = "50") int limit) {
+        FriendPageDTO page = friendService.myFriends(after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        page.getFriends().forEach(f -> f.setAvatarUrl(avatarUrl(f.getId(), f.getAvatarUrl())));
+        return page;
+    }
+
+    // amigos de amigos, por número de amigos em comum
+    @GetMapping("/suggestions")
+    public List<FriendSuggestionDto> suggestions(@RequestParam(defaultValue = "20") int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return suggestionService.suggestionsFor(SecurityUtils.currentUserId(), size).stream()
+                .map(s -> FriendSuggestionDto.builder()
+                        .id(s.id())
+                        .username(s.username())
+                        .avatarUrl(avatarUrl(s.id(), s.avatarUrl()))
+                        .mutualFriends(s.mutualFriends())
+                        .build())
                 .toList();
     }
 
@@ -127,11 +146,20 @@ public class FriendController {
         return ResponseEntity.noContent().build();
     }
 
+    // If entity has no public avatar URL, build a public URL to /media/avatar/{userId}
+    private static String avatarUrl(long userId, String avatarUrl) {
+        if (avatarUrl != null && !avatarUrl.isBlank()) return avatarUrl;
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/media/avatar/")
+                .path(String.valueOf(userId))
+                .toUriString();
+    }
+
     @Data @Builder
-    static class FriendPublicDto {
+    static class FriendSuggestionDto {
         private Long id;
         private String username;
-        private String email;
         private String avatarUrl;
+        private int mutualFriends;
     }
-}
\ No newline at end of file
+}
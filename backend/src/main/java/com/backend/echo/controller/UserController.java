@@ -1,15 +1,18 @@
 package com.backend.echo.controller;
 
+import com.backend.echo.cache.AvailabilityFilter;
+import com.backend.echo.cache.UserSearchIndex;
 import com.backend.echo.entity.User;
 import com.backend.echo.repository.UserRepository;
 import com.backend.echo.util.SecurityUtils;
+import com.backend.echo.util.UrlUtils;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
-import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -18,33 +21,50 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
 
-    private final UserRepository userRepository;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_RESULTS = 50;
 
-    private String toAbsoluteUrl(String maybeRelative) {
-        if (maybeRelative == null || maybeRelative.isBlank()) return null;
-        if (maybeRelative.startsWith("http://") || maybeRelative.startsWith("https://")) return maybeRelative;
-        return ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path(maybeRelative.startsWith("/") ? maybeRelative : "/" + maybeRelative)
-                .toUriString();
-    }
+    private final UserRepository userRepository;
+    private final UserSearchIndex searchIndex;
+    private final AvailabilityFilter availability;
 
+    // diretório paginado por id; "after" é o nextAfter da página anterior
     @GetMapping
-    public List<PublicUserResponse> getAllUsers() {
-        String me = SecurityUtils.currentUsername();
-        return userRepository.findAll().stream()
-                .filter(u -> !u.getUsername().equals(me)) // não listar o próprio usuário
+    public UserPageResponse getAllUsers(@RequestParam(required = false) Long after,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Long me = SecurityUtils.currentUserId(); // não listar o próprio usuário
+        List<User> page = userRepository.findByIdGreaterThanAndIdNotOrderByIdAsc(
+                after != null ? after : 0L, me, PageRequest.of(0, size));
+        List<PublicUserResponse> users = page.stream()
                 .map(u -> PublicUserResponse.builder()
                         .id(u.getId())
                         .username(u.getUsername())
                         .email(u.getEmail())
-                        .avatarUrl(toAbsoluteUrl(u.getAvatarUrl()))
+                        .avatarUrl(UrlUtils.toAbsoluteUrl(u.getAvatarUrl()))
+                        .build())
+                .toList();
+        Long nextAfter = page.size() == size ? page.get(page.size() - 1).getId() : null;
+        return new UserPageResponse(users, nextAfter);
+    }
+
+    // typeahead: prefixo primeiro, depois substring (a partir de 3 letras); servido do índice em memória
+    @GetMapping("/search")
+    public List<PublicUserResponse> search(@RequestParam("q") String q,
+                                           @RequestParam(defaultValue = "20") int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return searchIndex.search(q, size, SecurityUtils.currentUserId()).stream()
+                .map(c -> PublicUserResponse.builder()
+                        .id(c.id())
+                        .username(c.username())
+                        .avatarUrl(UrlUtils.toAbsoluteUrl(c.avatarUrl()))
                         .build())
                 .toList();
     }
 
     @GetMapping("/exists")
     public ExistsResponse exists(@RequestParam("username") String username) {
-        return new ExistsResponse(userRepository.existsByUsername(username));
+        return new ExistsResponse(availability.usernameExists(username));
     }
 
     @GetMapping("/{username}")
@@ -55,7 +75,7 @@ public class UserController {
                 .id(u.getId())
                 .username(u.getUsername())
                 .email(u.getEmail())
-                .avatarUrl(toAbsoluteUrl(u.getAvatarUrl()))
+                .avatarUrl(UrlUtils.toAbsoluteUrl(u.getAvatarUrl()))
                 .build();
     }
 
@@ -64,6 +84,12 @@ public class UserController {
         private final boolean exists;
     }
 
+    @Data
+    static class UserPageResponse {
+        private final List<PublicUserResponse> users;
+        private final Long nextAfter; // null quando não há mais
+    }
+
     @Data @Builder
     static class PublicUserResponse {
         private Long id;
@@ -1,22 +1,30 @@
 // java
 package com.backend.echo.controller;
 
+import com.backend.echo.cache.AvailabilityFilter;
+import com.backend.echo.cache.UserSearchIndex;
 import com.backend.echo.dto.ChangePasswordRequest;
 import com.backend.echo.dto.UserResponse;
 import com.backend.echo.dto.VerifyCodeRequest;
 import com.backend.echo.entity.User;
+import com.backend.echo.media.AvatarService;
 import com.backend.echo.repository.UserRepository;
+import com.backend.echo.security.JwtUtil;
+import com.backend.echo.security.PasswordHashing;
+import com.backend.echo.security.TokenVersions;
 import com.backend.echo.service.VerificationService;
 import com.backend.echo.util.SecurityUtils;
+import com.backend.echo.util.UrlUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.util.StringUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.nio.file.*;
+import java.util.Map;
 import java.util.Objects;
 
 @RestController
@@ -26,20 +34,22 @@ public class UserMeController {
 
     private final UserRepository userRepository;
     private final VerificationService verificationService;
-    private final PasswordEncoder passwordEncoder;
-
-    private User getCurrentUser() {
-        String username = SecurityUtils.currentUsername();
-        if (username == null) throw new IllegalStateException("Não autenticado.");
-        return userRepository.findByUsername(username).orElseThrow();
+    private final PasswordHashing passwordHashing;
+    private final TokenVersions tokenVersions;
+    private final JwtUtil jwtUtil;
+    private final UserSearchIndex searchIndex;
+    private final AvailabilityFilter availability;
+    private final AvatarService avatarService;
+
+    /** Username ou email já usado por outra conta; vira 409. */
+    private static final class TakenException extends RuntimeException {
+        TakenException(String message) {
+            super(message);
+        }
     }
 
-    private String toAbsoluteUrl(String maybeRelative) {
-        if (maybeRelative == null || maybeRelative.isBlank()) return null;
-        if (maybeRelative.startsWith("http://") || maybeRelative.startsWith("https://")) return maybeRelative;
-        return ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path(maybeRelative.startsWith("/") ? maybeRelative : "/" + maybeRelative)
-                .toUriString();
+    private User getCurrentUser() {
+        return userRepository.findById(SecurityUtils.currentUserId()).orElseThrow();
     }
 
     @GetMapping
@@ -49,7 +59,7 @@ public class UserMeController {
                 .id(u.getId())
                 .username(u.getUsername())
                 .email(u.getEmail())
-                .avatarUrl(toAbsoluteUrl(u.getAvatarUrl()))
+                .avatarUrl(UrlUtils.toAbsoluteUrl(u.getAvatarUrl()))
                 .build();
     }
 
@@ -68,14 +78,16 @@ public class UserMeController {
     @PostMapping("/password")
     public void changePassword(@RequestBody ChangePasswordRequest req) {
         User u = getCurrentUser();
-        if (!passwordEncoder.matches(req.getCurrentPassword(), u.getPassword())) {
+        if (!passwordHashing.matches(req.getCurrentPassword(), u.getPassword())) {
             throw new IllegalArgumentException("Senha atual incorreta.");
         }
         verificationService.consumePasswordChangeCode(u, req.getCode());
-        u.setPassword(passwordEncoder.encode(req.getNewPassword()));
+        u.setPassword(passwordHashing.encode(req.getNewPassword()));
         userRepository.save(u);
     }
 
+    // uma transação: a versão nova dos tokens só vale no cache depois do commit (TokenVersions)
+    @Transactional
     @PatchMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public UserResponse updateProfile(
             @RequestPart(value = "avatar", required = false) MultipartFile avatar,
@@ -85,33 +97,49 @@ public class UserMeController {
     ) throws Exception {
         User u = getCurrentUser();
 
-        if (!Objects.equals(u.getEmail(), email) && userRepository.existsByEmail(email)) {
-            throw new IllegalArgumentException("Email já utilizado.");
+        if (!Objects.equals(u.getEmail(), email) && availability.emailExists(email)) {
+            throw new TakenException("Email já utilizado.");
         }
-        if (!Objects.equals(u.getUsername(), username) && userRepository.existsByUsername(username)) {
-            throw new IllegalArgumentException("Usuário já utilizado.");
+        if (!Objects.equals(u.getUsername(), username) && availability.usernameExists(username)) {
+            throw new TakenException("Usuário já utilizado.");
         }
 
+        // o username vai nas claims: tokens antigos deixam de valer e o cliente recebe um novo
+        boolean renamed = !Objects.equals(u.getUsername(), username);
         u.setUsername(username);
         u.setEmail(email);
+        if (renamed) tokenVersions.bump(u);
 
         if (avatar != null && !avatar.isEmpty()) {
-            String ext = StringUtils.getFilenameExtension(avatar.getOriginalFilename());
-            if (ext == null || ext.isBlank()) ext = "png";
-            Path baseDir = Paths.get("uploads", "avatars");
-            Files.createDirectories(baseDir);
-            Path target = baseDir.resolve(u.getId() + "." + ext.toLowerCase());
-            Files.write(target, avatar.getBytes(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            u.setAvatarUrl("/uploads/avatars/" + target.getFileName());
+            u.setAvatarUrl(avatarService.saveAvatar(avatar, String.valueOf(u.getId())));
         }
 
-        userRepository.save(u);
+        userRepository.saveAndFlush(u); // conflito de unique aparece aqui, antes de mexer nos índices
+        searchIndex.put(u);
+        availability.add(u);
 
         return UserResponse.builder()
                 .id(u.getId())
                 .username(u.getUsername())
                 .email(u.getEmail())
-                .avatarUrl(toAbsoluteUrl(u.getAvatarUrl()))
+                .avatarUrl(UrlUtils.toAbsoluteUrl(u.getAvatarUrl()))
+                .token(renamed ? jwtUtil.generateToken(u) : null)
                 .build();
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> invalid(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(TakenException.class)
+    public ResponseEntity<Map<String, String>> taken(TakenException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+    }
+
+    // unique de username/email: nome pego em outro nó (o AvailabilityFilter é local) ou em paralelo
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, String>> conflict(DataIntegrityViolationException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "Usuário ou email já utilizado."));
+    }
 }
\ No newline at end of file
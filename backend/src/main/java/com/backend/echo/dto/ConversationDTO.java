@@ -0,0 +1,16 @@
+package com.backend.echo.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class ConversationDTO {
+    private Long peerId;
+    private String peerUsername;
+    private String peerAvatarUrl;
+    private Long lastMessageId;   // também é o cursor "before" da próxima página
+    private Long lastSenderId;
+    private String lastMessagePreview;
+    private LocalDateTime lastActivityAt;
+    private int unreadCount;
+}
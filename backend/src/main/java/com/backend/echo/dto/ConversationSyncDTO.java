@@ -0,0 +1,12 @@
+package com.backend.echo.dto;
+
+import lombok.*;
+import java.util.List;
+
+// Delta de uma conversa; conversas sem nada novo ficam fora da resposta
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class ConversationSyncDTO {
+    private Long peerId;
+    private List<MessageDTO> messages; // seq crescente; a última é o cursor do próximo sync
+    private boolean hasMore;           // delta maior que o limite: pedir de novo a partir da última
+}
@@ -0,0 +1,10 @@
+package com.backend.echo.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class FriendPageDTO {
+    private List<UserCardDTO> friends; // por id crescente
+    private Long nextAfter;            // cursor da próxima página (null quando não há mais)
+}
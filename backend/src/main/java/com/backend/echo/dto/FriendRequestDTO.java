@@ -0,0 +1,17 @@
+package com.backend.echo.dto;
+
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class FriendRequestDTO {
+    private Long id;
+    private UserCardDTO requester;
+    private LocalDateTime createdAt;
+
+    // usado pela query de projeção (JPQL não monta objetos aninhados)
+    public FriendRequestDTO(Long id, Long requesterId, String requesterUsername, String requesterAvatarUrl,
+                            LocalDateTime createdAt) {
+        this(id, new UserCardDTO(requesterId, requesterUsername, requesterAvatarUrl), createdAt);
+    }
+}
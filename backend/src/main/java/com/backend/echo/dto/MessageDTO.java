@@ -5,11 +5,12 @@ import java.time.LocalDateTime;
 
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class MessageDTO {
-    private long id;
+    private Long id;
     private Long senderId;    // será validado/ajustado pelo serviço
     private Long receiverId;  // usuário destino
     private String content;
     private LocalDateTime timestamp;
     private String mediaUrl;
+    private Long seq;         // posição na conversa (1, 2, 3...); cursor do sync
 
 }
@@ -0,0 +1,10 @@
+package com.backend.echo.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class MessagePageDTO {
+    private List<MessageDTO> messages; // mais recentes primeiro
+    private Long nextBefore;           // cursor da próxima página (null quando não há mais)
+}
@@ -0,0 +1,12 @@
+package com.backend.echo.dto;
+
+import lombok.*;
+import java.util.Map;
+
+// Pedido de delta na reconexão (POST /conversations/sync ou /app/sync). O cliente assina os
+// tópicos antes de pedir e descarta repetidas pela seq.
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class SyncRequestDTO {
+    private Map<Long, Long> conversations; // peerId -> última seq contígua que o cliente tem (0 se nenhuma)
+    private Integer limit;                 // mensagens por conversa (padrão e máximo: 100)
+}
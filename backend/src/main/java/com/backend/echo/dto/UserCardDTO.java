@@ -0,0 +1,11 @@
+package com.backend.echo.dto;
+
+import lombok.*;
+
+// só o que a lista precisa mostrar; montado direto pela query (sem hidratar User)
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class UserCardDTO {
+    private Long id;
+    private String username;
+    private String avatarUrl;
+}
@@ -8,4 +8,5 @@ public class UserResponse {
     private String username;
     private String email;
     private String avatarUrl;
+    private String token; // só preenchido quando o perfil muda algo que está no token
 }
\ No newline at end of file
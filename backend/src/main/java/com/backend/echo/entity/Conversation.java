@@ -0,0 +1,43 @@
+package com.backend.echo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Read model da lista de conversas: uma linha por participante (dono + par),
+// atualizada a cada mensagem gravada. Evita group-by sobre a tabela de mensagens.
+@Entity
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+@Table(name = "conversations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversation_owner_peer", columnNames = {"owner_id", "peer_id"}),
+        indexes = @Index(name = "idx_conversation_owner_recent", columnList = "owner_id,last_message_id"))
+public class Conversation {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "peer_id", nullable = false)
+    private Long peerId;
+
+    @Column(name = "conversation_key", nullable = false, length = 41)
+    private String conversationKey;
+
+    // snapshot da última mensagem; ids de mensagem crescem com o tempo e servem de cursor
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_sender_id", nullable = false)
+    private Long lastSenderId;
+
+    @Column(name = "last_message_preview")
+    private String lastMessagePreview;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    // mensagens do par ainda não lidas pelo dono
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+}
@@ -2,6 +2,8 @@ package com.backend.echo.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.springframework.data.domain.Persistable;
+
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -12,10 +14,14 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class Message {
+@Table(indexes = {
+        @Index(name = "idx_message_conversation", columnList = "conversation_key,id"),
+        @Index(name = "idx_message_conversation_seq", columnList = "conversation_key,seq")
+})
+public class Message implements Persistable<Long> {
 
+    // id atribuído pela aplicação (MessageIdGenerator), conhecido antes do commit
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     // remetente
@@ -28,6 +34,14 @@ public class Message {
     @JoinColumn(name = "receiver_id")
     private User receiver;
 
+    // "{min}_{max}" dos ids dos participantes, ver ConversationKeys
+    @Column(name = "conversation_key", length = 41)
+    private String conversationKey;
+
+    // posição na conversa (1, 2, 3...), atribuída pelo ConversationSequences; null nas
+    // mensagens gravadas antes da coluna existir
+    private Long seq;
+
     // conteúdo da mensagem
     @Column(nullable = false)
     private String content;
@@ -40,4 +54,19 @@ public class Message {
     // Correção: Reaction é @Entity => use OneToMany ao invés de ElementCollection
     @OneToMany(mappedBy = "message", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Reaction> reactions = new ArrayList<>();
+
+    // com id atribuído o Spring Data não sabe se a entidade é nova; evita o merge (SELECT + INSERT)
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
 }
\ No newline at end of file
@@ -31,4 +31,8 @@ public class User {
     private String email;
 
     private String avatarUrl;
+
+    // sobe quando os tokens emitidos precisam deixar de valer (ex.: troca de username)
+    @Column(nullable = false)
+    private int tokenVersion;
 }
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.backend.echo.mail;
+
+import com.backend.echo.entity.OutboundMail;
+import com.backend.echo.repository.OutboundMailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esvazia a mail_outbox numa thread própria. Pega os emails vencidos em lotes e envia
+ * todos pela mesma conexão SMTP, que fica aberta entre lotes e só fecha depois de
+ * {@code idle-close-ms} sem uso. Falhas voltam para a fila com espera exponencial;
+ * depois de {@code max-attempts} o email fica DEAD (ver MailOutboxController).
+ *
+ * Um dispatcher por banco: com vários nós, deixar {@code app.mail.outbox.dispatcher-enabled}
+ * ligado em apenas um, senão o mesmo email pode sair duas vezes.
+ */
+@Component
+public class MailDispatcher {
+
+    private final Logger log = LoggerFactory.getLogger(MailDispatcher.class);
+
+    private final JavaMailSender mailSender;
+    private final OutboundMailRepository outbox;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollMs;
+    private final long idleCloseMs;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+
+    private final Semaphore signal = new Semaphore(0);
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dead;
+    private final Timer sendTimer;
+
+    private volatile boolean running;
+    private Thread worker;
+    private Transport transport; // só usado pela thread do dispatcher
+    private boolean transportChecked; // já conferida neste lote; evita um NOOP por email
+    private long lastUsedAt;
+    private long earliestRetryAt = Long.MAX_VALUE; // menor próxima tentativa agendada ainda no futuro
+
+    public MailDispatcher(JavaMailSender mailSender,
+                          OutboundMailRepository outbox,
+                          @Value("${app.mail.outbox.dispatcher-enabled:true}") boolean enabled,
+                          @Value("${app.mail.outbox.batch-size:50}") int batchSize,
+                          @Value("${app.mail.outbox.poll-ms:5000}") long pollMs,
+                          @Value("${app.mail.outbox.idle-close-ms:30000}") long idleCloseMs,
+                          @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+                          @Value("${app.mail.outbox.base-backoff-ms:5000}") long baseBackoffMs,
+                          @Value("${app.mail.outbox.max-backoff-ms:3600000}") long maxBackoffMs,
+                          MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.outbox = outbox;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollMs = pollMs;
+        this.idleCloseMs = idleCloseMs;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = Duration.ofMillis(baseBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+
+        this.sent = Counter.builder("echo.mail.sent").register(meterRegistry);
+        this.retried = Counter.builder("echo.mail.retried").register(meterRegistry);
+        this.dead = Counter.builder("echo.mail.dead").register(meterRegistry);
+        this.sendTimer = Timer.builder("echo.mail.send").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        worker = new Thread(this::run, "mail-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Há email novo na fila; chamado depois do commit de quem enfileirou. */
+    public void wake() {
+        signal.release();
+    }
+
+    private void run() {
+        try {
+            loop();
+        } finally {
+            closeTransport();
+        }
+    }
+
+    private void loop() {
+        while (running) {
+            try {
+                // lote cheio: provavelmente tem mais, segue sem esperar
+                if (drainOnce() == batchSize) continue;
+                closeIfIdle();
+                long waitMs = Math.min(pollMs, Math.max(1, earliestRetryAt - System.currentTimeMillis()));
+                signal.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+                signal.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Falha no dispatcher de email", e);
+                sleepQuietly(pollMs);
+            }
+        }
+    }
+
+    int drainOnce() {
+        // a retentativa que estávamos esperando já venceu: se falhar de novo, é reagendada abaixo
+        if (earliestRetryAt <= System.currentTimeMillis()) earliestRetryAt = Long.MAX_VALUE;
+        List<OutboundMail> due = outbox.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                OutboundMail.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+        if (due.isEmpty()) return 0;
+        transportChecked = false;
+
+        List<Long> delivered = new ArrayList<>();
+        List<OutboundMail> failed = new ArrayList<>();
+        for (OutboundMail mail : due) {
+            try {
+                deliver(mail);
+                delivered.add(mail.getId());
+            } catch (MessagingException | RuntimeException e) {
+                closeTransport(); // a conexão pode ter ficado num estado ruim; reabre no próximo
+                failed.add(backOff(mail, e));
+            }
+        }
+
+        if (!delivered.isEmpty()) outbox.deleteAllByIdInBatch(delivered);
+        if (!failed.isEmpty()) outbox.saveAll(failed);
+        return due.size();
+    }
+
+    private void deliver(OutboundMail mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setTo(mail.getRecipient());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getBody());
+
+        long start = System.nanoTime();
+        if (mailSender instanceof JavaMailSenderImpl) {
+            message.saveChanges();
+            transport().sendMessage(message, message.getAllRecipients());
+            lastUsedAt = System.currentTimeMillis();
+        } else {
+            mailSender.send(message); // outro JavaMailSender: deixa a conexão com ele
+        }
+        sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        sent.increment();
+    }
+
+    private OutboundMail backOff(OutboundMail mail, Exception e) {
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        mail.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+
+        if (attempts >= maxAttempts) {
+            mail.setStatus(OutboundMail.Status.DEAD);
+            dead.increment();
+            log.warn("Email {} para {} desistido após {} tentativas: {}", mail.getId(), mail.getRecipient(), attempts, error);
+        } else {
+            // base * 2^(tentativas-1), com teto
+            long delayMs = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << Math.min(attempts - 1, 20));
+            mail.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delayMs)));
+            earliestRetryAt = Math.min(earliestRetryAt, System.currentTimeMillis() + delayMs);
+            retried.increment();
+            log.info("Email {} falhou (tentativa {}), nova tentativa em {} ms: {}", mail.getId(), attempts, delayMs, error);
+        }
+        return mail;
+    }
+
+    private Transport transport() throws MessagingException {
+        if (transport != null && (transportChecked || transport.isConnected())) {
+            transportChecked = true;
+            return transport;
+        }
+        closeTransport();
+        JavaMailSenderImpl impl = (JavaMailSenderImpl) mailSender;
+        Transport t = impl.getSession().getTransport(impl.getProtocol() != null ? impl.getProtocol() : "smtp");
+        t.connect(impl.getHost(), impl.getPort(), impl.getUsername(), impl.getPassword());
+        transport = t;
+        transportChecked = true;
+        return t;
+    }
+
+    private void closeIfIdle() {
+        if (transport != null && System.currentTimeMillis() - lastUsedAt > idleCloseMs) closeTransport();
+    }
+
+    private void closeTransport() {
+        if (transport == null) return;
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Falha ao fechar conexão SMTP", e);
+        }
+        transport = null;
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker == null) return;
+        worker.interrupt();
+        worker.join(5000);
+    }
+}
@@ -0,0 +1,54 @@
+package com.backend.echo.mail;
+
+import com.backend.echo.entity.OutboundMail;
+import com.backend.echo.repository.OutboundMailRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** Dead letters da fila de email (só ADMIN). O corpo não sai aqui: pode ter códigos. */
+@RestController
+@RequestMapping("/admin/mail")
+@RequiredArgsConstructor
+public class MailOutboxController {
+
+    private final OutboundMailRepository outbox;
+    private final MailDispatcher dispatcher;
+
+    public record DeadMail(Long id, String recipient, String subject, int attempts,
+                           String lastError, LocalDateTime createdAt) {}
+
+    @GetMapping("/dead")
+    public List<DeadMail> dead(@RequestParam(defaultValue = "50") int limit) {
+        int size = Math.max(1, Math.min(limit, 500));
+        return outbox.findByStatusOrderByIdDesc(OutboundMail.Status.DEAD, PageRequest.of(0, size)).stream()
+                .map(m -> new DeadMail(m.getId(), m.getRecipient(), m.getSubject(), m.getAttempts(),
+                        m.getLastError(), m.getCreatedAt()))
+                .toList();
+    }
+
+    /** Devolve o email para a fila com as tentativas zeradas. */
+    @PostMapping("/dead/{id}/retry")
+    public void retry(@PathVariable Long id) {
+        OutboundMail mail = outbox.findById(id)
+                .filter(m -> m.getStatus() == OutboundMail.Status.DEAD)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Email não encontrado"));
+        mail.setStatus(OutboundMail.Status.PENDING);
+        mail.setAttempts(0);
+        mail.setNextAttemptAt(LocalDateTime.now());
+        outbox.save(mail);
+        dispatcher.wake();
+    }
+
+    @DeleteMapping("/dead/{id}")
+    public void discard(@PathVariable Long id) {
+        outbox.findById(id)
+                .filter(m -> m.getStatus() == OutboundMail.Status.DEAD)
+                .ifPresent(outbox::delete);
+    }
+}
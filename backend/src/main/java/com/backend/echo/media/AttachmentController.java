@@ -0,0 +1,86 @@
+package com.backend.echo.media;
+
+import com.backend.echo.util.SecurityUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Upload de anexos do chat. O arquivo vai como corpo bruto da requisição (Content-Type = tipo
+ * do arquivo), nunca multipart, e é gravado em streaming. Dois modos:
+ * <ul>
+ *   <li>{@code POST /attachments}: o arquivo inteiro numa requisição;</li>
+ *   <li>{@code POST /attachments/sessions?length=&contentType=} abre um upload em partes;
+ *       {@code PATCH /attachments/sessions/{id}} com {@code Upload-Offset} envia cada trecho e
+ *       {@code GET} diz até onde chegou, para continuar depois de uma queda.</li>
+ * </ul>
+ * A resposta final traz a URL para o mediaUrl da mensagem.
+ */
+@RestController
+@RequestMapping("/attachments")
+public class AttachmentController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private final AttachmentService attachments;
+
+    public AttachmentController(AttachmentService attachments) {
+        this.attachments = attachments;
+    }
+
+    @PostMapping
+    public ResponseEntity<AttachmentService.Stored> upload(HttpServletRequest request) throws IOException {
+        AttachmentService.Stored stored = attachments.store(SecurityUtils.currentUserId(),
+                request.getInputStream(), request.getContentLengthLong(), request.getContentType());
+        return ResponseEntity.status(stored.deduplicated() ? HttpStatus.OK : HttpStatus.CREATED).body(stored);
+    }
+
+    @PostMapping("/sessions")
+    public ResponseEntity<AttachmentService.Session> open(@RequestParam long length,
+                                                          @RequestParam String contentType) throws IOException {
+        return withOffset(HttpStatus.CREATED, attachments.open(SecurityUtils.currentUserId(), length, contentType));
+    }
+
+    @GetMapping("/sessions/{id}")
+    public ResponseEntity<AttachmentService.Session> session(@PathVariable String id) {
+        return withOffset(HttpStatus.OK, attachments.session(SecurityUtils.currentUserId(), id));
+    }
+
+    @PatchMapping("/sessions/{id}")
+    public ResponseEntity<AttachmentService.Session> append(@PathVariable String id,
+                                                            @RequestHeader(UPLOAD_OFFSET) long offset,
+                                                            HttpServletRequest request) throws IOException {
+        return withOffset(HttpStatus.OK,
+                attachments.append(SecurityUtils.currentUserId(), id, offset, request.getInputStream()));
+    }
+
+    @DeleteMapping("/sessions/{id}")
+    public ResponseEntity<Void> cancel(@PathVariable String id) throws IOException {
+        attachments.cancel(SecurityUtils.currentUserId(), id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static ResponseEntity<AttachmentService.Session> withOffset(HttpStatus status, AttachmentService.Session session) {
+        return ResponseEntity.status(status).header(UPLOAD_OFFSET, Long.toString(session.offset())).body(session);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> invalid(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    // offset fora de ordem ou trecho concorrente: o cliente consulta a sessão e continua de lá
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> conflict(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    public ResponseEntity<Map<String, String>> notFound(SecurityException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+    }
+}
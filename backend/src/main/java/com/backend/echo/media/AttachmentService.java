@@ -0,0 +1,38 @@
+package com.backend.echo.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Anexos de chat guardados pelo SHA-256 do conteúdo: o mesmo arquivo enviado de novo (reenvio,
+ * encaminhamento) vira a mesma URL e ocupa o disco uma vez só. A URL devolvida vai no mediaUrl
+ * da mensagem.
+ */
+public interface AttachmentService {
+
+    /** Arquivo gravado; {@code deduplicated} quando o conteúdo já existia. */
+    record Stored(String url, String sha256, long size, String contentType, boolean deduplicated) {}
+
+    /** Estado de um upload em partes; {@code stored} só quando todos os bytes chegaram. */
+    record Session(String id, long offset, long length, Stored stored) {}
+
+    /**
+     * Grava o corpo inteiro de uma vez, lendo em blocos fixos. {@code declaredLength} é o
+     * Content-Length (-1 se desconhecido), checado antes de começar.
+     */
+    Stored store(long ownerId, InputStream body, long declaredLength, String contentType) throws IOException;
+
+    /** Abre um upload em partes de {@code length} bytes. */
+    Session open(long ownerId, long length, String contentType) throws IOException;
+
+    Session session(long ownerId, String sessionId);
+
+    /**
+     * Acrescenta um trecho a partir de {@code offset}, que precisa ser igual ao já recebido
+     * (senão IllegalStateException). Se a conexão cair no meio, o que chegou fica gravado e
+     * session() informa de onde continuar.
+     */
+    Session append(long ownerId, String sessionId, long offset, InputStream body) throws IOException;
+
+    void cancel(long ownerId, String sessionId) throws IOException;
+}
@@ -1,43 +1,40 @@
 package com.backend.echo.media;
 
-import org.springframework.core.io.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/media")
 public class AvatarController {
 
-    private final AvatarService avatarService; // implementa loadAvatarAsResource(userId)
+    private final AvatarService avatarService; // implementa findAvatar(userId)
+    private final MediaFileSender sender;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService, MediaFileSender sender) {
         this.avatarService = avatarService;
+        this.sender = sender;
     }
 
+    // ETag e Last-Modified vêm do índice do serviço; com If-None-Match/If-Modified-Since batendo,
+    // a resposta é 304 com esses headers e o arquivo nem é aberto
+    // ?size= escolhe a variante reduzida mais próxima (lado em px); sem ele, o original
     @GetMapping("/avatar/{userId}")
-    public ResponseEntity<Resource> avatar(@PathVariable String userId) {
-        Resource res = avatarService.loadAvatarAsResource(userId);
-        if (res == null || !res.exists()) return ResponseEntity.notFound().build();
-
-        try {
-            // tenta descobrir o content type
-            String contentType = null;
-            try {
-                Path path = Paths.get(res.getURI());
-                contentType = Files.probeContentType(path);
-            } catch (Exception ignored) {}
-
-            if (contentType == null) contentType = "image/jpeg";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setCacheControl(CacheControl.maxAge(1, java.util.concurrent.TimeUnit.DAYS));
-            return ResponseEntity.ok().headers(headers).contentType(MediaType.parseMediaType(contentType)).body(res);
-        } catch (Exception e) {
-            return ResponseEntity.ok().contentType(MediaType.IMAGE_JPEG).body(res);
+    public void avatar(@PathVariable String userId,
+                       @RequestParam(required = false) Integer size,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        AvatarService.Avatar avatar = avatarService.findAvatar(userId, size);
+        if (avatar == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+
+        // mesma URL para o avatar novo: o cliente guarda, mas revalida (barato, 304) a cada uso
+        sender.send(new MediaFileSender.MediaFile(avatar.resource(), avatar.contentType(), avatar.length(),
+                        avatar.lastModified(), avatar.etag()),
+                CacheControl.noCache(), request, response);
     }
-}
\ No newline at end of file
+}
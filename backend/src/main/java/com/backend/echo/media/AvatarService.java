@@ -4,13 +4,30 @@ import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface AvatarService {
+
+    /** Arquivo do avatar com o que o controller precisa para responder sem tocar no disco. */
+    record Avatar(Resource resource, String contentType, long length, long lastModified, String etag) {}
+
+    /**
+     * Avatar do usuário (ou o avatar padrão, se ele não tiver). Retorna null se nem o padrão existir.
+     * Com {@code size}, a variante pré-gerada mais próxima (a menor com pelo menos esse lado), se houver.
+     */
+    Avatar findAvatar(String userId, Integer size);
+
+    default Avatar findAvatar(String userId) {
+        return findAvatar(userId, null);
+    }
+
     /**
      * Carrega o avatar do usuário como Resource. Retorna null se não existir.
      */
-    Resource loadAvatarAsResource(String userId);
+    default Resource loadAvatarAsResource(String userId) {
+        Avatar avatar = findAvatar(userId);
+        return avatar == null ? null : avatar.resource();
+    }
 
     /**
-     * Salva/atualiza avatar para o userId. Retorna a URL relativa/filename salvo (ex: avatar filename).
+     * Salva/atualiza avatar para o userId. Retorna a URL relativa para servir o avatar.
      */
     String saveAvatar(MultipartFile file, String userId) throws Exception;
 
@@ -18,4 +35,4 @@ public interface AvatarService {
      * Remove avatar do usuário (opcional).
      */
     void deleteAvatar(String userId) throws Exception;
-}
\ No newline at end of file
+}
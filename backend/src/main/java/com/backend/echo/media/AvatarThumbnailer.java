@@ -0,0 +1,209 @@
+package com.backend.echo.media;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gera as variantes de tamanho fixo de um avatar ({@code app.avatars.sizes}) fora da thread do
+ * upload: pool pequeno com fila limitada, como o PasswordHashing. A imagem é decodificada uma vez,
+ * já reduzida na leitura (subsampling) quando o original é muito maior que a maior variante;
+ * cada variante sai da anterior, recortada no centro em quadrado.
+ *
+ * Saída em JPEG (PNG quando a imagem tem transparência): são os formatos com encoder no JDK.
+ */
+@Component
+public class AvatarThumbnailer {
+
+    private final Logger log = LoggerFactory.getLogger(AvatarThumbnailer.class);
+
+    private final int[] sizes; // crescente
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+    private final Timer renderTimer;
+    private final Counter rejected;
+    private final Counter failed;
+
+    public AvatarThumbnailer(@Value("${app.avatars.sizes:48,128,512}") int[] sizes,
+                             @Value("${app.avatars.resize.threads:1}") int threads,
+                             @Value("${app.avatars.resize.queue:100}") int queue,
+                             @Value("${app.avatars.jpeg-quality:0.85}") float jpegQuality,
+                             MeterRegistry meterRegistry) {
+        this.sizes = Arrays.stream(sizes).filter(s -> s > 0).sorted().distinct().toArray();
+        this.jpegQuality = jpegQuality;
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread t = new Thread(r, "avatar-resize-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY); // não disputa CPU com as requisições
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.renderTimer = Timer.builder("echo.avatars.resize").register(meterRegistry);
+        this.rejected = Counter.builder("echo.avatars.resize.rejected").register(meterRegistry);
+        this.failed = Counter.builder("echo.avatars.resize.failed").register(meterRegistry);
+        Gauge.builder("echo.avatars.resize.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    /** Arquivo de uma variante já gravada. */
+    public record Variant(int size, Path path, String contentType) {}
+
+    public int[] sizes() {
+        return sizes.clone();
+    }
+
+    /**
+     * Agenda a geração das variantes de {@code source} em {@code dir}, com nomes
+     * {@code <baseName>_<tamanho>.<ext>}. Retorna null se a fila estiver cheia (o original
+     * continua sendo servido); o future completa com as variantes por tamanho.
+     */
+    public CompletableFuture<TreeMap<Integer, Variant>> submit(Path source, Path dir, String baseName) {
+        try {
+            return CompletableFuture.supplyAsync(() -> renderTimer.record(() -> render(source, dir, baseName)), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Fila de redimensionamento cheia; {} fica só com o original", source.getFileName());
+            return null;
+        }
+    }
+
+    private TreeMap<Integer, Variant> render(Path source, Path dir, String baseName) {
+        TreeMap<Integer, Variant> out = new TreeMap<>();
+        try {
+            BufferedImage image = centerSquare(decode(source, sizes[sizes.length - 1]));
+            boolean alpha = image.getColorModel().hasAlpha();
+            String ext = alpha ? ".png" : ".jpg";
+
+            // da maior para a menor: cada redução parte da variante anterior
+            BufferedImage current = image;
+            for (int i = sizes.length - 1; i >= 0; i--) {
+                int size = sizes[i];
+                if (size > image.getWidth()) continue; // não amplia; o original já é pequeno
+                current = scale(current, size, alpha);
+                Path target = dir.resolve(baseName + "_" + size + ext);
+                write(current, target, alpha);
+                out.put(size, new Variant(size, target, alpha ? "image/png" : "image/jpeg"));
+            }
+            return out;
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Falha ao gerar variantes de {}: {}", source.getFileName(), e.toString());
+            out.values().forEach(v -> deleteQuietly(v.path()));
+            return new TreeMap<>();
+        }
+    }
+
+    // lê já reduzido por subsampling: um original de 6000px não precisa ocupar 144 MB de pixels
+    private static BufferedImage decode(Path source, int largest) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) throw new IOException("Formato de imagem não suportado");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int side = Math.min(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, side / (2 * largest)); // mantém pelo menos 2x a maior variante
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage image = reader.read(0, param);
+                if (image == null) throw new IOException("Imagem vazia");
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage centerSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        return image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+    }
+
+    // bilinear em passos de no máximo metade: um passo só de 1024 para 48 serrilha a imagem.
+    // Sempre desenha ao menos uma vez, o que também converte paleta/cinza para RGB(A)
+    private static BufferedImage scale(BufferedImage image, int size, boolean alpha) {
+        BufferedImage current = image;
+        int w = current.getWidth();
+        do {
+            w = Math.max(size, w / 2);
+            BufferedImage next = new BufferedImage(w, w, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, w, w, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w > size);
+        return current;
+    }
+
+    // grava ao lado e troca de uma vez, como o original
+    private void write(BufferedImage image, Path target, boolean png) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            if (png) {
+                ImageIO.write(image, "png", tmp.toFile());
+            } else {
+                ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+                try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                    writer.setOutput(out);
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(jpegQuality);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {}
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
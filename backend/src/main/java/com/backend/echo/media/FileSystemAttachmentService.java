@@ -0,0 +1,292 @@
+package com.backend.echo.media;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static java.util.Map.entry;
+
+/**
+ * Anexos em {@code <uploads>/sha256/ab/cd/<sha256>.<ext>}, servidos pelo UploadController. O
+ * corpo é lido em blocos de {@code app.uploads.chunk-bytes} direto para um arquivo temporário,
+ * com o SHA-256 atualizado a cada bloco: o heap usado por upload é um buffer, qualquer que seja
+ * o tamanho do arquivo. No fim o temporário é sincronizado e movido para o nome do hash; se
+ * esse nome já existe, o conteúdo é o mesmo e o temporário é descartado.
+ *
+ * Uploads em partes guardam o progresso (arquivo parcial + estado do digest) em memória, em
+ * {@code <uploads>/.partial}; expiram após {@code app.uploads.session-ttl-ms} sem atividade e
+ * não sobrevivem a restart.
+ */
+@Service
+public class FileSystemAttachmentService implements AttachmentService {
+
+    private static final Map<String, String> EXTENSIONS = Map.ofEntries(
+            entry("image/jpeg", ".jpg"), entry("image/png", ".png"), entry("image/gif", ".gif"),
+            entry("image/webp", ".webp"), entry("audio/mpeg", ".mp3"), entry("audio/ogg", ".ogg"),
+            entry("audio/webm", ".weba"), entry("audio/mp4", ".m4a"), entry("audio/wav", ".wav"),
+            entry("video/mp4", ".mp4"), entry("video/webm", ".webm"), entry("application/pdf", ".pdf"));
+    private static final String OTHER_EXTENSION = ".bin";
+    private static final String OTHER_TYPE = "application/octet-stream";
+
+    private final Logger log = LoggerFactory.getLogger(FileSystemAttachmentService.class);
+    private final Path root;
+    private final Path store;
+    private final Path partialDir;
+    private final int chunkBytes;
+    private final long maxBytes;
+    private final long sessionTtlMs;
+    private final int maxSessionsPerUser;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Upload> sessions = new ConcurrentHashMap<>();
+    private final Counter storedNew;
+    private final Counter storedDeduplicated;
+    private final Counter receivedBytes;
+
+    public FileSystemAttachmentService(@Value("${app.media.uploads.path:./uploads}") String uploadsPath,
+                                       @Value("${app.uploads.chunk-bytes:65536}") int chunkBytes,
+                                       @Value("${app.uploads.max-bytes:104857600}") long maxBytes,
+                                       @Value("${app.uploads.session-ttl-ms:86400000}") long sessionTtlMs,
+                                       @Value("${app.uploads.max-sessions-per-user:10}") int maxSessionsPerUser,
+                                       MeterRegistry meterRegistry) throws IOException {
+        this.root = Paths.get(uploadsPath).toAbsolutePath().normalize();
+        this.store = root.resolve("sha256");
+        this.partialDir = root.resolve(".partial");
+        this.chunkBytes = chunkBytes;
+        this.maxBytes = maxBytes;
+        this.sessionTtlMs = sessionTtlMs;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        Files.createDirectories(store);
+        Files.createDirectories(partialDir);
+        clearPartials();
+
+        this.storedNew = Counter.builder("echo.attachments.stored").tag("result", "new").register(meterRegistry);
+        this.storedDeduplicated = Counter.builder("echo.attachments.stored").tag("result", "deduplicated").register(meterRegistry);
+        this.receivedBytes = Counter.builder("echo.attachments.received").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("echo.attachments.sessions", sessions, Map::size).register(meterRegistry);
+    }
+
+    /** Upload em partes; guardado pelo próprio lock (um trecho por vez). */
+    private static final class Upload {
+        final String id;
+        final long owner;
+        final long length;
+        final String contentType;
+        final Path partial;
+        final MessageDigest sha256 = sha256();
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long offset;
+        volatile Stored stored;
+        volatile long touchedAt = System.currentTimeMillis();
+
+        Upload(String id, long owner, long length, String contentType, Path partial) {
+            this.id = id;
+            this.owner = owner;
+            this.length = length;
+            this.contentType = contentType;
+            this.partial = partial;
+        }
+
+        Session state() {
+            return new Session(id, offset, length, stored);
+        }
+    }
+
+    @Override
+    public Stored store(long ownerId, InputStream body, long declaredLength, String contentType) throws IOException {
+        requireSize(declaredLength < 0 ? 1 : declaredLength);
+        String type = normalize(contentType);
+        Path tmp = Files.createTempFile(partialDir, "put-", ".tmp");
+        try {
+            MessageDigest sha256 = sha256();
+            long size;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                size = copy(body, out, sha256, maxBytes, null);
+                out.force(false); // o nome é o hash: não pode existir com conteúdo incompleto após uma queda
+            }
+            if (size == 0) throw new IllegalArgumentException("Arquivo vazio");
+            if (declaredLength >= 0 && size != declaredLength) throw new IOException("Corpo incompleto");
+            return publish(tmp, sha256, size, type);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public Session open(long ownerId, long length, String contentType) throws IOException {
+        requireSize(length);
+        expire();
+        long open = sessions.values().stream().filter(u -> u.owner == ownerId && u.stored == null).count();
+        if (open >= maxSessionsPerUser) throw new IllegalStateException("Muitos uploads em andamento");
+
+        byte[] raw = new byte[16];
+        random.nextBytes(raw);
+        String id = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        Upload upload = new Upload(id, ownerId, length, normalize(contentType), partialDir.resolve(id));
+        Files.createFile(upload.partial);
+        sessions.put(id, upload);
+        return upload.state();
+    }
+
+    @Override
+    public Session session(long ownerId, String sessionId) {
+        return find(ownerId, sessionId).state();
+    }
+
+    @Override
+    public Session append(long ownerId, String sessionId, long offset, InputStream body) throws IOException {
+        Upload upload = find(ownerId, sessionId);
+        if (!upload.lock.tryLock()) throw new IllegalStateException("Outro trecho deste upload está em andamento");
+        try {
+            if (upload.stored != null) return upload.state(); // resposta do último trecho se perdeu; repete
+            if (offset != upload.offset) {
+                throw new IllegalStateException("Offset " + offset + " não confere; recebido até " + upload.offset);
+            }
+            try (FileChannel out = FileChannel.open(upload.partial, StandardOpenOption.WRITE)) {
+                out.position(upload.offset);
+                // o offset avança bloco a bloco: se a conexão cair, o que foi gravado vale
+                copy(body, out, upload.sha256, upload.length - upload.offset, n -> upload.offset += n);
+                if (upload.offset == upload.length) {
+                    out.truncate(upload.length); // sobra de um bloco interrompido antes de um retry
+                    out.force(false);
+                }
+            } finally {
+                upload.touchedAt = System.currentTimeMillis();
+            }
+            if (upload.offset == upload.length) {
+                upload.stored = publish(upload.partial, upload.sha256, upload.length, upload.contentType);
+                Files.deleteIfExists(upload.partial);
+            }
+            return upload.state();
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    @Override
+    public void cancel(long ownerId, String sessionId) throws IOException {
+        Upload upload = find(ownerId, sessionId);
+        if (!upload.lock.tryLock()) throw new IllegalStateException("Outro trecho deste upload está em andamento");
+        try {
+            sessions.remove(sessionId, upload);
+            Files.deleteIfExists(upload.partial);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    private interface Progress {
+        void written(int n);
+    }
+
+    // lê em blocos fixos, grava e só então soma ao digest, para digest e arquivo andarem juntos
+    private long copy(InputStream in, FileChannel out, MessageDigest sha256, long limit, Progress progress) throws IOException {
+        byte[] buf = new byte[chunkBytes];
+        ByteBuffer wrapped = ByteBuffer.wrap(buf);
+        long total = 0;
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            if (total + n > limit) throw new IllegalArgumentException("Arquivo maior que o tamanho permitido ou declarado");
+            wrapped.clear().limit(n);
+            while (wrapped.hasRemaining()) out.write(wrapped);
+            sha256.update(buf, 0, n);
+            total += n;
+            receivedBytes.increment(n);
+            if (progress != null) progress.written(n);
+        }
+        return total;
+    }
+
+    private Stored publish(Path file, MessageDigest sha256, long size, String contentType) throws IOException {
+        String hex = HexFormat.of().formatHex(sha256.digest());
+        String ext = EXTENSIONS.getOrDefault(contentType, OTHER_EXTENSION);
+        Path target = store.resolve(hex.substring(0, 2)).resolve(hex.substring(2, 4)).resolve(hex + ext);
+        boolean deduplicated = Files.exists(target);
+        if (!deduplicated) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                deduplicated = true; // mesmo conteúdo gravado por outro upload ao mesmo tempo
+            }
+        }
+        (deduplicated ? storedDeduplicated : storedNew).increment();
+        String url = "/uploads/" + root.relativize(target).toString().replace('\\', '/');
+        return new Stored(url, hex, size, EXTENSIONS.containsKey(contentType) ? contentType : OTHER_TYPE, deduplicated);
+    }
+
+    private Upload find(long ownerId, String sessionId) {
+        Upload upload = sessionId == null ? null : sessions.get(sessionId);
+        // upload de outro usuário responde como inexistente
+        if (upload == null || upload.owner != ownerId) throw new SecurityException("Upload não encontrado");
+        return upload;
+    }
+
+    // varre na abertura de um novo upload; são poucos por usuário
+    private void expire() {
+        long cutoff = System.currentTimeMillis() - sessionTtlMs;
+        for (Upload upload : sessions.values()) {
+            if (upload.touchedAt >= cutoff || !upload.lock.tryLock()) continue;
+            try {
+                if (sessions.remove(upload.id, upload)) Files.deleteIfExists(upload.partial);
+            } catch (IOException e) {
+                log.debug("Falha ao remover upload expirado {}", upload.partial, e);
+            } finally {
+                upload.lock.unlock();
+            }
+        }
+    }
+
+    private void requireSize(long length) {
+        if (length <= 0) throw new IllegalArgumentException("Tamanho inválido");
+        if (length > maxBytes) throw new IllegalArgumentException("Arquivo maior que o limite de " + maxBytes + " bytes");
+    }
+
+    // "image/jpeg; charset=..." -> "image/jpeg"
+    private static String normalize(String contentType) {
+        if (contentType == null) return OTHER_TYPE;
+        int semicolon = contentType.indexOf(';');
+        String type = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim().toLowerCase(Locale.ROOT);
+        if (type.startsWith("multipart/")) {
+            throw new IllegalArgumentException("Envie o arquivo como corpo da requisição, não multipart");
+        }
+        return type;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void clearPartials() throws IOException {
+        try (Stream<Path> files = Files.list(partialDir)) {
+            files.forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {}
+            });
+        }
+    }
+}
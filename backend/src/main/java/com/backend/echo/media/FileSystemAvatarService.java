@@ -1,5 +1,9 @@
 package com.backend.echo.media;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.*;
 import org.springframework.stereotype.Service;
@@ -7,49 +11,93 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+/**
+ * Avatares em disco, um arquivo por usuário em {@code <storage>/ab/cd/<userId>.<ext>}: o par de
+ * subdiretórios sai de um hash do id, então nenhum diretório cresce com o número de usuários.
+ *
+ * Um índice em memória (userId -> caminho, content type, mtime, ETag) evita listar ou sondar o
+ * disco a cada request; é preenchido no primeiro acesso de cada usuário (também quando ele não
+ * tem avatar) e atualizado por saveAvatar/deleteAvatar. Alterações feitas por fora do serviço,
+ * ou por outro nó no mesmo diretório, não são vistas até o restart.
+ *
+ * Ao lado do original ficam as variantes reduzidas ({@code <userId>_<versão>_<tamanho>.<ext>},
+ * geradas pelo AvatarThumbnailer depois do upload). A versão no nome impede que um
+ * redimensionamento atrasado de um avatar antigo seja servido como variante do novo.
+ */
 @Service
 public class FileSystemAvatarService implements AvatarService {
 
+    private static final List<String> EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".gif", ".webp");
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            ".jpg", "image/jpeg", ".jpeg", "image/jpeg", ".png", "image/png",
+            ".gif", "image/gif", ".webp", "image/webp");
+    private static final Pattern USER_ID = Pattern.compile("\\d{1,18}");
+    private static final Pattern LEGACY_FILE = Pattern.compile("(\\d{1,18})(\\.[a-z]+)");
+    private static final Pattern VARIANT_FILE = Pattern.compile("(\\d{1,18})_([0-9a-z-]+)_(\\d+)\\.(jpg|png)");
+    private static final Entry NONE = new Entry(null, null, Collections.emptyNavigableMap(), false); // usuário sem avatar
+
+    private final Logger log = LoggerFactory.getLogger(FileSystemAvatarService.class);
     private final Path storageLocation;
-    private final Resource defaultAvatar;
+    private final Avatar defaultAvatar;
+    private final AvatarThumbnailer thumbnailer;
+    private final ConcurrentHashMap<String, Entry> index = new ConcurrentHashMap<>();
 
     public FileSystemAvatarService(@Value("${avatars.storage.path:./data/avatars}") String storagePath,
-                                   ResourceLoader resourceLoader) throws IOException {
+                                   ResourceLoader resourceLoader,
+                                   AvatarThumbnailer thumbnailer,
+                                   MeterRegistry meterRegistry) throws IOException {
+        this.thumbnailer = thumbnailer;
         this.storageLocation = Paths.get(storagePath).toAbsolutePath().normalize();
         Files.createDirectories(this.storageLocation);
         // default avatar embutido em resources/static/default-avatar.jpg (adicione essa imagem no projeto)
         Resource r = resourceLoader.getResource("classpath:static/default-avatar.jpg");
-        this.defaultAvatar = r.exists() ? r : null;
+        this.defaultAvatar = r.exists() ? describeDefault(r) : null;
+        migrateFlatLayout();
+        Gauge.builder("echo.avatars.indexed", index, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    /** Original e variantes já prontas, por tamanho; {@code needsRender} quando ainda não há variantes. */
+    private record Entry(Avatar original, Path path, NavigableMap<Integer, Avatar> variants, boolean needsRender) {
+        Entry rendering() { return new Entry(original, path, variants, false); }
+        Entry withVariants(NavigableMap<Integer, Avatar> v) { return new Entry(original, path, v, false); }
     }
 
     @Override
-    public Resource loadAvatarAsResource(String userId) {
-        try {
-            // procura por arquivos que começam com userId. ex: 123.jpg, 123.png
-            try (Stream<Path> files = Files.list(this.storageLocation)) {
-                Path found = files
-                        .filter(p -> p.getFileName().toString().startsWith(userId + "."))
-                        .findFirst().orElse(null);
-                if (found != null && Files.exists(found)) {
-                    Resource resource = new UrlResource(found.toUri());
-                    if (resource.exists() || resource.isReadable()) return resource;
-                }
-            }
-        } catch (IOException e) {
-            // ignore, vamos retornar default
+    public Avatar findAvatar(String userId, Integer size) {
+        if (userId == null || !USER_ID.matcher(userId).matches()) return defaultAvatar;
+        Entry entry = index.computeIfAbsent(userId, this::probe);
+        if (entry.original() == null) return defaultAvatar;
+        // avatar sem variantes (anterior ao pipeline, ou restart no meio): gera agora, uma vez
+        if (entry.needsRender() && index.replace(userId, entry, entry.rendering())) render(userId, entry);
+        if (size != null && !entry.variants().isEmpty()) {
+            // a menor que cobre o tamanho pedido; acima de todas, a maior
+            Map.Entry<Integer, Avatar> variant = entry.variants().ceilingEntry(size);
+            return (variant != null ? variant : entry.variants().lastEntry()).getValue();
         }
-        return this.defaultAvatar;
+        return entry.original(); // sem size, ou variantes ainda não prontas
     }
 
     @Override
     public String saveAvatar(MultipartFile file, String userId) throws Exception {
         if (file == null || file.isEmpty()) throw new IllegalArgumentException("Arquivo vazio");
+        requireUserId(userId);
 
-        String original = StringUtils.cleanPath(file.getOriginalFilename());
+        String original = StringUtils.cleanPath(file.getOriginalFilename() == null ? "" : file.getOriginalFilename());
         String ext = "";
         int idx = original.lastIndexOf('.');
         if (idx >= 0) ext = original.substring(idx).toLowerCase();
@@ -63,23 +111,180 @@ public class FileSystemAvatarService implements AvatarService {
             else ext = ".jpg";
         }
 
-        // Remove avatares anteriores do user
-        try (Stream<Path> files = Files.list(this.storageLocation)) {
-            files.filter(p -> p.getFileName().toString().startsWith(userId + "."))
-                    .forEach(p -> { try { Files.deleteIfExists(p); } catch (IOException ignored) {} });
+        Path dir = shardDir(userId);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(userId + ext);
+        // grava ao lado e troca de uma vez: quem está lendo nunca vê o arquivo pela metade
+        Path tmp = Files.createTempFile(dir, userId + "-", ".tmp");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
         }
-
-        String filename = userId + ext;
-        Path target = this.storageLocation.resolve(filename).normalize();
-        Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
-        return filename; // o controller pode montar a URL /media/avatar/{userId}
+        // Remove avatares anteriores do user (com outra extensão) e as variantes deles
+        for (String other : EXTENSIONS) {
+            if (!other.equals(ext)) Files.deleteIfExists(dir.resolve(userId + other));
+        }
+        deleteVariants(dir, userId);
+        Avatar saved = describe(target, CONTENT_TYPES.get(ext));
+        Entry entry = new Entry(saved, target, Collections.emptyNavigableMap(), false);
+        index.put(userId, entry);
+        render(userId, entry); // o upload não espera: até ficar pronto, serve o original
+        // versão na URL: a troca de avatar muda a URL e o cliente não reaproveita a imagem antiga
+        return "/media/avatar/" + userId + "?v=" + version(saved);
     }
 
     @Override
     public void deleteAvatar(String userId) throws Exception {
-        try (Stream<Path> files = Files.list(this.storageLocation)) {
-            files.filter(p -> p.getFileName().toString().startsWith(userId + "."))
-                    .forEach(p -> { try { Files.deleteIfExists(p); } catch (IOException ignored) {} });
+        requireUserId(userId);
+        Path dir = shardDir(userId);
+        for (String ext : EXTENSIONS) Files.deleteIfExists(dir.resolve(userId + ext));
+        deleteVariants(dir, userId);
+        index.put(userId, NONE);
+    }
+
+    private void render(String userId, Entry entry) {
+        String baseName = userId + "_" + version(entry.original());
+        CompletableFuture<TreeMap<Integer, AvatarThumbnailer.Variant>> job =
+                thumbnailer.submit(entry.path(), entry.path().getParent(), baseName);
+        if (job == null) {
+            // fila cheia: tenta de novo num próximo acesso
+            index.computeIfPresent(userId, (k, e) -> e.original() == entry.original()
+                    ? new Entry(e.original(), e.path(), e.variants(), true) : e);
+            return;
+        }
+        job.thenAccept(rendered -> publish(userId, entry.original(), rendered));
+    }
+
+    private void publish(String userId, Avatar original, TreeMap<Integer, AvatarThumbnailer.Variant> rendered) {
+        NavigableMap<Integer, Avatar> variants = new TreeMap<>();
+        try {
+            for (AvatarThumbnailer.Variant v : rendered.values()) {
+                variants.put(v.size(), describe(v.path(), v.contentType()));
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao ler variantes do avatar de {}", userId, e);
+            return;
+        }
+        boolean[] current = {false};
+        index.computeIfPresent(userId, (k, e) -> {
+            if (e.original() != original) return e;
+            current[0] = true;
+            return e.withVariants(Collections.unmodifiableNavigableMap(variants));
+        });
+        // o usuário trocou (ou apagou) o avatar enquanto redimensionávamos
+        if (!current[0]) rendered.values().forEach(v -> deleteQuietly(v.path()));
+    }
+
+    // primeiro acesso ao usuário: lista só o diretório dele (poucas dezenas de arquivos)
+    private Entry probe(String userId) {
+        Path dir = shardDir(userId);
+        Path original = null;
+        String originalExt = null;
+        List<Path> variantFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.startsWith(userId + ".")) {
+                    String ext = name.substring(userId.length());
+                    if (EXTENSIONS.contains(ext)) {
+                        original = p;
+                        originalExt = ext;
+                    }
+                } else if (name.startsWith(userId + "_")) {
+                    variantFiles.add(p);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return NONE;
+        } catch (IOException e) {
+            log.debug("Falha ao listar {}", dir, e);
+            return NONE;
+        }
+        if (original == null) return NONE;
+
+        try {
+            Avatar avatar = describe(original, CONTENT_TYPES.get(originalExt));
+            String version = version(avatar);
+            NavigableMap<Integer, Avatar> variants = new TreeMap<>();
+            for (Path p : variantFiles) {
+                Matcher m = VARIANT_FILE.matcher(p.getFileName().toString());
+                if (!m.matches() || !m.group(1).equals(userId)) continue;
+                if (!m.group(2).equals(version)) {
+                    deleteQuietly(p); // sobra de um avatar anterior
+                    continue;
+                }
+                variants.put(Integer.parseInt(m.group(3)), describe(p, "png".equals(m.group(4)) ? "image/png" : "image/jpeg"));
+            }
+            return new Entry(avatar, original, Collections.unmodifiableNavigableMap(variants), variants.isEmpty());
+        } catch (IOException e) {
+            log.debug("Falha ao ler avatar {}", original, e);
+            return NONE;
+        }
+    }
+
+    private static Avatar describe(Path path, String contentType) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        long mtime = attrs.lastModifiedTime().toMillis();
+        return new Avatar(new FileSystemResource(path), contentType, attrs.size(), mtime,
+                MediaFileSender.MediaFile.etag(mtime, attrs.size()));
+    }
+
+    private static String version(Avatar avatar) {
+        return avatar.etag().replace("\"", "");
+    }
+
+    private static void deleteVariants(Path dir, String userId) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().startsWith(userId + "_")).forEach(FileSystemAvatarService::deleteQuietly);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {}
+    }
+
+    private static Avatar describeDefault(Resource r) {
+        long mtime = 0;
+        long size = 0;
+        try {
+            mtime = r.lastModified();
+            size = r.contentLength();
+        } catch (IOException ignored) {}
+        return new Avatar(r, "image/jpeg", size, mtime, "\"default-" + Long.toString(size, 36) + "\"");
+    }
+
+    // dois níveis de 256 diretórios a partir de um hash do id (ids sequenciais se espalham)
+    private Path shardDir(String userId) {
+        long h = Long.parseLong(userId) * 0x9E3779B97F4A7C15L;
+        int a = (int) (h >>> 56) & 0xff;
+        int b = (int) (h >>> 48) & 0xff;
+        return storageLocation.resolve(String.format("%02x", a)).resolve(String.format("%02x", b));
+    }
+
+    private static void requireUserId(String userId) {
+        if (userId == null || !USER_ID.matcher(userId).matches()) {
+            throw new IllegalArgumentException("Usuário inválido");
+        }
+    }
+
+    // avatares gravados no layout antigo (todos na raiz) vão para o subdiretório certo
+    private void migrateFlatLayout() throws IOException {
+        int moved = 0;
+        try (Stream<Path> files = Files.list(storageLocation)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Matcher m = LEGACY_FILE.matcher(p.getFileName().toString());
+                if (!m.matches() || !EXTENSIONS.contains(m.group(2)) || !Files.isRegularFile(p)) continue;
+                Path dir = shardDir(m.group(1));
+                Files.createDirectories(dir);
+                Files.move(p, dir.resolve(p.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                moved++;
+            }
         }
+        if (moved > 0) log.info("{} avatares movidos para subdiretórios", moved);
     }
-}
\ No newline at end of file
+}
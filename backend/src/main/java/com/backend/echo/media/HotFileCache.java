@@ -0,0 +1,109 @@
+package com.backend.echo.media;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Arquivos pequenos e muito pedidos (avatares reduzidos, o avatar padrão, figurinhas) guardados
+ * fora do heap, em ByteBuffers diretos: o GC não varre esses bytes e a resposta não depende do
+ * page cache ter mantido o arquivo. LRU exato (LinkedHashMap em ordem de acesso) sob um lock;
+ * as entradas são poucas e a operação dentro dele é só um lookup.
+ *
+ * Desligado com {@code app.media.cache.max-bytes=0}. O limite deve ficar abaixo de
+ * -XX:MaxDirectMemorySize; buffers removidos só voltam ao sistema quando o GC os coleta.
+ */
+@Component
+public class HotFileCache {
+
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    private final LinkedHashMap<String, Cached> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes; // guardado pelo monitor de entries
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public HotFileCache(@Value("${app.media.cache.max-bytes:0}") long maxBytes,
+                        @Value("${app.media.cache.max-file-bytes:65536}") long maxFileBytes,
+                        MeterRegistry meterRegistry) {
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+
+        FunctionCounter.builder("echo.media.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("echo.media.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        Gauge.builder("echo.media.cache.bytes", this, HotFileCache::bytes).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("echo.media.cache.files", this, HotFileCache::files).register(meterRegistry);
+    }
+
+    private record Cached(String etag, ByteBuffer data) {}
+
+    /** Se um arquivo desse tamanho entra no cache. */
+    public boolean accepts(long length) {
+        return length > 0 && length <= maxFileBytes;
+    }
+
+    /**
+     * Conteúdo do arquivo (somente leitura, posição 0), do cache ou lido agora e guardado.
+     * Retorna null se o arquivo mudou durante a leitura; o chamador serve do disco.
+     */
+    public ByteBuffer get(String key, String etag, Resource resource, long length) throws IOException {
+        synchronized (entries) {
+            Cached cached = entries.get(key);
+            if (cached != null && cached.etag().equals(etag)) {
+                hits.increment();
+                return cached.data().duplicate();
+            }
+        }
+        misses.increment();
+
+        // leitura fora do lock: dois pedidos simultâneos do mesmo arquivo leem duas vezes, sem problema
+        ByteBuffer data = ByteBuffer.allocateDirect((int) length);
+        try (ReadableByteChannel in = resource.readableChannel()) {
+            while (data.hasRemaining() && in.read(data) >= 0) {}
+            if (data.hasRemaining() || in.read(ByteBuffer.allocate(1)) >= 0) return null; // tamanho mudou
+        }
+        data.flip();
+        ByteBuffer readOnly = data.asReadOnlyBuffer();
+        put(key, new Cached(etag, readOnly));
+        return readOnly.duplicate();
+    }
+
+    private void put(String key, Cached cached) {
+        synchronized (entries) {
+            Cached previous = entries.put(key, cached);
+            if (previous != null) totalBytes -= previous.data().capacity();
+            totalBytes += cached.data().capacity();
+            Iterator<Map.Entry<String, Cached>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                totalBytes -= it.next().getValue().data().capacity(); // o menos usado primeiro
+                it.remove();
+            }
+        }
+    }
+
+    private long bytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private int files() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.backend.echo.media;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * Escreve um arquivo de mídia na resposta: validação condicional (304/412), Range com 206/416
+ * e If-Range, e o corpo pelo caminho mais barato disponível:
+ * <ul>
+ *   <li>arquivos pequenos e quentes saem do {@link HotFileCache}, fora do heap;</li>
+ *   <li>os maiores vão por sendfile do Tomcat: o servlet só informa arquivo e intervalo e o
+ *       conector copia do page cache para o socket, sem passar pela JVM;</li>
+ *   <li>sem sendfile (outro container, HTTP/2 com compressão), FileChannel.transferTo na saída.</li>
+ * </ul>
+ * Só um intervalo por pedido; com vários, responde o arquivo inteiro (permitido pela RFC 9110 e
+ * evita multipart/byteranges, que nenhum player usa).
+ */
+@Component
+public class MediaFileSender {
+
+    // atributos do sendfile do Tomcat (org.apache.coyote.Constants / Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final Logger log = LoggerFactory.getLogger(MediaFileSender.class);
+    private final HotFileCache cache;
+    private final long sendfileMinBytes;
+    private final Counter servedCache;
+    private final Counter servedSendfile;
+    private final Counter servedTransfer;
+    private final Counter partial;
+
+    public MediaFileSender(HotFileCache cache,
+                           @Value("${app.media.sendfile-min-bytes:49152}") long sendfileMinBytes,
+                           MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.sendfileMinBytes = sendfileMinBytes;
+        this.servedCache = Counter.builder("echo.media.served").tag("mode", "cache").register(meterRegistry);
+        this.servedSendfile = Counter.builder("echo.media.served").tag("mode", "sendfile").register(meterRegistry);
+        this.servedTransfer = Counter.builder("echo.media.served").tag("mode", "transfer").register(meterRegistry);
+        this.partial = Counter.builder("echo.media.partial").register(meterRegistry);
+    }
+
+    /**
+     * Arquivo a servir. O ETag é forte: os arquivos nunca são alterados no lugar (gravação ao lado
+     * e move atômico), então mtime + tamanho identificam o conteúdo, como no nginx.
+     */
+    public record MediaFile(Resource resource, String contentType, long length, long lastModified, String etag) {
+
+        public static MediaFile of(Path path, String contentType) throws IOException {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            long mtime = attrs.lastModifiedTime().toMillis();
+            return new MediaFile(new FileSystemResource(path), contentType, attrs.size(), mtime, etag(mtime, attrs.size()));
+        }
+
+        public static String etag(long lastModified, long length) {
+            return "\"" + Long.toString(lastModified, 36) + "-" + Long.toString(length, 36) + "\"";
+        }
+    }
+
+    public void send(MediaFile file, CacheControl cacheControl,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String cc = cacheControl.getHeaderValue();
+        if (cc != null) response.setHeader(HttpHeaders.CACHE_CONTROL, cc);
+        // também escreve ETag e Last-Modified; com If-None-Match/If-Modified-Since batendo, 304 sem corpo
+        if (new ServletWebRequest(request, response).checkNotModified(file.etag(), file.lastModified())) return;
+
+        long length = file.length();
+        long start = 0;
+        long end = length - 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(file.contentType());
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0 && ifRangeMatches(request, file)) {
+            HttpRange range = singleRange(rangeHeader);
+            if (range != null) {
+                start = range.getRangeStart(length);
+                end = Math.min(range.getRangeEnd(length), length - 1);
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                partial.increment();
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) return;
+
+        try {
+            writeBody(file, start, count, request, response);
+        } catch (IOException e) {
+            // cliente desistiu no meio (player pulando para outro trecho, aba fechada)
+            log.debug("Envio de {} interrompido: {}", file.resource().getDescription(), e.toString());
+        }
+    }
+
+    private void writeBody(MediaFile file, long start, long count,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Resource resource = file.resource();
+        if (cache.accepts(file.length())) {
+            ByteBuffer data = cache.get(resource.getDescription(), file.etag(), resource, file.length());
+            if (data != null) {
+                data.position((int) start).limit((int) (start + count));
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                while (data.hasRemaining()) out.write(data);
+                servedCache.increment();
+                return;
+            }
+        }
+        if (!resource.isFile()) {
+            // avatar padrão dentro do jar: não há arquivo para o sendfile nem para o FileChannel
+            try (InputStream in = resource.getInputStream()) {
+                in.skipNBytes(start);
+                OutputStream out = response.getOutputStream();
+                byte[] buf = new byte[8192];
+                long left = count;
+                int n;
+                while (left > 0 && (n = in.read(buf, 0, (int) Math.min(buf.length, left))) > 0) {
+                    out.write(buf, 0, n);
+                    left -= n;
+                }
+            }
+            servedTransfer.increment();
+            return;
+        }
+
+        Path path = resource.getFile().toPath();
+        if (count >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // o Tomcat abre o arquivo e faz o sendfile depois que o controller retorna
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count); // exclusivo
+            servedSendfile.increment();
+            return;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long last = start + count;
+            while (position < last) {
+                long n = in.transferTo(position, last - position, out);
+                if (n <= 0) break; // arquivo encolheu; o Content-Length já foi, o cliente vê o corte
+                position += n;
+            }
+        }
+        servedTransfer.increment();
+    }
+
+    // If-Range: com ETag, só o forte e igual; com data, igual ao Last-Modified em segundos
+    private static boolean ifRangeMatches(HttpServletRequest request, MediaFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(file.etag());
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == file.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Range inválido ou com vários intervalos é ignorado (200 com o arquivo inteiro)
+    private static HttpRange singleRange(String header) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.backend.echo.media;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arquivos enviados (mediaUrl das mensagens) em {@code /uploads/**}. Antes servidos pelo resource
+ * handler genérico do Spring; aqui passam pelo MediaFileSender (sendfile, Range, ETag forte).
+ * Os anexos novos ficam em {@code sha256/} (AttachmentService).
+ */
+@RestController
+public class UploadController {
+
+    private final Path root;
+    private final Path contentAddressed;
+    private final MediaFileSender sender;
+
+    public UploadController(@Value("${app.media.uploads.path:./uploads}") String uploadsPath,
+                            MediaFileSender sender) {
+        this.root = Paths.get(uploadsPath).toAbsolutePath().normalize();
+        this.contentAddressed = root.resolve("sha256");
+        this.sender = sender;
+    }
+
+    @GetMapping("/uploads/{*path}")
+    public void upload(@PathVariable String path,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path file = root.resolve(path.substring(1)).normalize();
+        // nada fora do diretório, nem ocultos (.partial dos uploads em andamento, .htaccess...)
+        if (!file.startsWith(root) || file.equals(root) || hidden(root.relativize(file))
+                || !Files.isRegularFile(file)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String contentType = MediaTypeFactory.getMediaType(new FileSystemResource(file))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        MediaFileSender.MediaFile media;
+        try {
+            media = MediaFileSender.MediaFile.of(file, contentType);
+        } catch (NoSuchFileException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND); // removido entre a checagem e o stat
+            return;
+        }
+        // sha256/... tem o nome pelo conteúdo: nunca muda, o cliente não precisa revalidar
+        CacheControl cacheControl = file.startsWith(contentAddressed)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.maxAge(1, TimeUnit.HOURS);
+        sender.send(media, cacheControl, request, response);
+    }
+
+    private static boolean hidden(Path relative) {
+        for (Path name : relative) {
+            if (name.toString().startsWith(".")) return true;
+        }
+        return false;
+    }
+}
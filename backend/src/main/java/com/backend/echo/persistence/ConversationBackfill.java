@@ -0,0 +1,38 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.repository.ConversationRepository;
+import com.backend.echo.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Completa dados derivados de mensagens gravadas antes de existirem:
+// conversation_key (histórico paginado) e a tabela conversations (inbox).
+@Component
+@RequiredArgsConstructor
+public class ConversationBackfill {
+
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final Logger log = LoggerFactory.getLogger(ConversationBackfill.class);
+
+    // melhor esforço: uma falha aqui não derruba a aplicação (exceção no ApplicationReadyEvent
+    // encerra o contexto) e a próxima inicialização tenta de novo
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            int updated = messageRepository.backfillConversationKeys();
+            if (updated > 0) log.info("conversation_key preenchida em {} mensagens", updated);
+
+            if (conversationRepository.count() == 0) {
+                int rows = conversationRepository.backfillFromMessages();
+                if (rows > 0) log.info("Inbox reconstruído com {} linhas", rows);
+            }
+        } catch (RuntimeException e) {
+            log.error("Falha ao completar dados derivados das mensagens", e);
+        }
+    }
+}
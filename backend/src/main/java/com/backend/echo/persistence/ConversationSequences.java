@@ -0,0 +1,107 @@
+package com.backend.echo.persistence;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sequência por conversa (1, 2, 3...) atribuída pelo servidor a cada mensagem, no lugar do
+ * timestamp do cliente, que pode repetir ou voltar. Este nó é o dono de todas as conversas
+ * (o broker STOMP também é local): um AtomicLong por conversa, sem lock no envio. O contador
+ * começa da maior seq gravada, lida do MessageStore no primeiro envio da conversa depois da
+ * inicialização, e fica em memória até o fim da execução (poucos bytes por conversa).
+ *
+ * A seq é atribuída antes da gravação, então dois envios simultâneos podem terminar fora de
+ * ordem: N+1 legível antes de N. Quem pede a seq chama {@link #done} depois de gravar e pôr
+ * no RecentMessagesCache (ou depois de falhar), e {@link #durable} é a maior seq com todas as
+ * anteriores concluídas. O sync não entrega nada acima dela, senão o cliente avançaria o
+ * cursor por cima de N. Também sem lock: um AtomicLong que o done() avança por CAS; só as
+ * seqs concluídas fora de ordem passam por um ConcurrentSkipListSet até a marca chegar
+ * nelas. Um store que só deixa a mensagem legível depois de retornar (write-behind) segura
+ * a seq com {@link #hold} até lá.
+ *
+ * Uma seq cuja gravação falhou fica como buraco; o cliente não espera por ela depois que um
+ * sync devolveu seqs maiores.
+ */
+@Component
+public class ConversationSequences {
+
+    private final MessageStore messageStore;
+    private final ConcurrentHashMap<String, State> counters = new ConcurrentHashMap<>();
+
+    public ConversationSequences(MessageStore messageStore, MeterRegistry meterRegistry) {
+        this.messageStore = messageStore;
+        Gauge.builder("echo.messages.sequences", counters, Map::size).register(meterRegistry);
+    }
+
+    private static final class State {
+        final AtomicLong last;
+        final AtomicLong durable;
+        // concluídas acima da marca, esperando as anteriores
+        final ConcurrentSkipListSet<Long> completed = new ConcurrentSkipListSet<>();
+        // done() extras pedidos por hold(); vazio fora do write-behind
+        final ConcurrentHashMap<Long, AtomicInteger> holds = new ConcurrentHashMap<>();
+
+        State(long last) {
+            this.last = new AtomicLong(last);
+            this.durable = new AtomicLong(last);
+        }
+    }
+
+    /** Próxima seq da conversa; conta como em andamento até {@link #done}. */
+    public long next(String conversationKey) {
+        State counter = counters.get(conversationKey);
+        if (counter == null) {
+            // consulta fora do computeIfAbsent (não segura o bin do mapa durante a consulta);
+            // se dois threads carregarem juntos, vale o contador que entrou primeiro
+            long last = messageStore.lastSeq(conversationKey);
+            counter = counters.computeIfAbsent(conversationKey, k -> new State(last));
+        }
+        return counter.last.incrementAndGet();
+    }
+
+    /** Mais um {@link #done} antes de a seq contar como concluída; chamar antes do primeiro. */
+    public void hold(String conversationKey, long seq) {
+        State counter = counters.get(conversationKey);
+        if (counter == null) return;
+        counter.holds.put(seq, new AtomicInteger(1));
+    }
+
+    public void done(String conversationKey, long seq) {
+        State counter = counters.get(conversationKey);
+        if (counter == null) return;
+        AtomicInteger held = counter.holds.get(seq);
+        if (held != null) {
+            if (held.getAndDecrement() > 0) return;
+            counter.holds.remove(seq);
+        }
+
+        // caso comum, em ordem: a marca está logo abaixo e avança direto
+        if (!counter.durable.compareAndSet(seq - 1, seq)) counter.completed.add(seq);
+        // a seguinte pode ter concluído antes e parado na marca antiga: quem avança a marca
+        // olha depois de avançar, quem entrou no conjunto olha a marca depois de entrar
+        while (true) {
+            long mark = counter.durable.get();
+            if (!counter.completed.contains(mark + 1) || !counter.durable.compareAndSet(mark, mark + 1)) {
+                if (counter.durable.get() == mark) return;
+                continue;
+            }
+            counter.completed.remove(mark + 1);
+        }
+    }
+
+    /**
+     * Maior seq com todas as anteriores já gravadas (ou desistidas). Conversa sem envio nesta
+     * execução: tudo o que existe já está gravado, sem limite.
+     */
+    public long durable(String conversationKey) {
+        State counter = counters.get(conversationKey);
+        return counter == null ? Long.MAX_VALUE : counter.durable.get();
+    }
+}
@@ -0,0 +1,53 @@
+package com.backend.echo.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limita quantos handlers usam o banco ao mesmo tempo. Com threads virtuais o executor
+ * não limita mais a concorrência; sem isto milhares de handlers ficariam esperando
+ * conexão no pool do Hikari até o connectionTimeout. Aqui a espera é curta e a falha
+ * volta para o cliente como erro de "ocupado".
+ */
+@Component
+public class DbPermits {
+
+    private final Semaphore permits;
+    private final long timeoutMs;
+    private final Counter rejected;
+
+    public DbPermits(@Value("${app.db.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+                     @Value("${app.db.permit-timeout-ms:5000}") long timeoutMs,
+                     MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(permits, true);
+        this.timeoutMs = timeoutMs;
+        Gauge.builder("echo.db.permits.available", this.permits, Semaphore::availablePermits).register(meterRegistry);
+        this.rejected = Counter.builder("echo.db.permits.rejected").register(meterRegistry);
+    }
+
+    public <T> T call(Supplier<T> work) {
+        acquire();
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        throw new IllegalStateException("Servidor ocupado, tente novamente.");
+    }
+}
@@ -0,0 +1,46 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.repository.ConversationRepository;
+import com.backend.echo.util.ConversationKeys;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// uma linha do inbox (tabela conversations) a ser aplicada com ConversationRepository.UPSERT_SQL
+record InboxUpdate(long ownerId, long peerId, String conversationKey, long messageId, long senderId,
+                   String preview, LocalDateTime activityAt, int unreadIncrement) {
+
+    private static final int PREVIEW_LENGTH = 120;
+
+    // cada mensagem atualiza a linha dos dois participantes; só o destinatário ganha não lida
+    static List<InboxUpdate> forMessage(JournaledMessage m) {
+        String key = ConversationKeys.of(m.senderId(), m.receiverId());
+        String preview = preview(m.content());
+        return List.of(
+                new InboxUpdate(m.senderId(), m.receiverId(), key, m.id(), m.senderId(), preview, m.timestamp(), 0),
+                new InboxUpdate(m.receiverId(), m.senderId(), key, m.id(), m.senderId(), preview, m.timestamp(), 1));
+    }
+
+    private static String preview(String content) {
+        if (content == null) return null;
+        return content.length() <= PREVIEW_LENGTH ? content : content.substring(0, PREVIEW_LENGTH);
+    }
+
+    /** Aplica o inbox de um lote de mensagens num único batch JDBC (na transação do chamador). */
+    static void applyAll(JdbcTemplate jdbcTemplate, List<JournaledMessage> messages) {
+        List<InboxUpdate> inbox = messages.stream().flatMap(m -> forMessage(m).stream()).toList();
+        jdbcTemplate.batchUpdate(ConversationRepository.UPSERT_SQL, inbox, inbox.size(), (ps, u) -> {
+            ps.setLong(1, u.ownerId());
+            ps.setLong(2, u.peerId());
+            ps.setString(3, u.conversationKey());
+            ps.setLong(4, u.messageId());
+            ps.setLong(5, u.senderId());
+            ps.setString(6, u.preview());
+            ps.setTimestamp(7, Timestamp.valueOf(u.activityAt()));
+            ps.setInt(8, u.unreadIncrement());
+        });
+    }
+}
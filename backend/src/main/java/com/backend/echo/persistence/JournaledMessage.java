@@ -0,0 +1,20 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.entity.Message;
+
+import java.time.LocalDateTime;
+
+// o que o write-behind precisa de uma mensagem: só ids, sem entidades
+record JournaledMessage(long id, long senderId, long receiverId,
+                        String content, String mediaUrl, LocalDateTime timestamp, long seq) {
+
+    static JournaledMessage of(Message m) {
+        return new JournaledMessage(m.getId(), m.getSender().getId(), m.getReceiver().getId(),
+                m.getContent(), m.getMediaUrl(), m.getTimestamp(), m.getSeq() != null ? m.getSeq() : 0);
+    }
+
+    MessageDTO toDTO() {
+        return new MessageDTO(id, senderId, receiverId, content, timestamp, mediaUrl, seq > 0 ? seq : null);
+    }
+}
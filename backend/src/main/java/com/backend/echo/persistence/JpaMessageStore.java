@@ -0,0 +1,48 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.entity.Message;
+import com.backend.echo.repository.ConversationRepository;
+import com.backend.echo.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// gravação síncrona: mensagem e inbox na mesma transação
+@Component
+@ConditionalOnProperty(name = "app.messages.store", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaMessageStore implements MessageStore {
+
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+
+    @Override
+    @Transactional
+    public void store(Message message) {
+        messageRepository.save(message);
+        for (InboxUpdate u : InboxUpdate.forMessage(JournaledMessage.of(message))) {
+            conversationRepository.upsert(u.ownerId(), u.peerId(), u.conversationKey(), u.messageId(),
+                    u.senderId(), u.preview(), u.activityAt(), u.unreadIncrement());
+        }
+    }
+
+    @Override
+    public List<MessageDTO> pageBefore(String conversationKey, long before, int limit) {
+        return messageRepository.findPageBefore(conversationKey, before, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<MessageDTO> pageAfterSeq(String conversationKey, long afterSeq, int limit) {
+        return messageRepository.findPageAfterSeq(conversationKey, afterSeq, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public long lastSeq(String conversationKey) {
+        return messageRepository.findLastSeq(conversationKey);
+    }
+}
@@ -0,0 +1,303 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.entity.Message;
+import com.backend.echo.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mensagens no MessageLog local em vez da tabela message: o envio é um append no segmento
+ * mapeado mais um fsync agrupado, e o histórico é lido do log. Para um nó só; vários nós
+ * precisam de jpa ou write-behind.
+ *
+ * O que já estava na tabela message (de quando o store era jpa ou write-behind) não é
+ * migrado: fica mais antigo que tudo no log e é lido de lá quando a página passa do começo do
+ * log. Com o log ligado nada mais grava na tabela, então o maior id e a maior seq de cada
+ * conversa na tabela são lidos uma vez e guardados; a seq do log continua da da tabela.
+ *
+ * O inbox (tabela conversations) continua no banco, aplicado em lotes por um writer, como no
+ * write-behind. O arquivo inbox.checkpoint guarda a posição do log até onde o inbox foi
+ * aplicado; na inicialização o resto é reaplicado (uma queda entre o commit do lote e o
+ * checkpoint pode contar as não lidas desse lote duas vezes). Segmentos só são compactados
+ * depois que o checkpoint passou deles.
+ */
+@Component
+@ConditionalOnProperty(name = "app.messages.store", havingValue = "log")
+public class LogMessageStore implements MessageStore {
+
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+
+    private final Logger log = LoggerFactory.getLogger(LogMessageStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageRepository messageRepository;
+    private final MessageLog messageLog;
+    private final Path checkpointFile;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Counter appended;
+    private final Counter syncs;
+    private final Counter compactions;
+    private final Counter overflow;
+
+    private final Thread writer;
+    private final ExecutorService compactor;
+    private final Set<Long> compacting = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, TableHistory> tableHistory = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public LogMessageStore(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           MessageRepository messageRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.messages.log.path:./data/messages}") String logPath,
+                           @Value("${app.messages.log.segment-bytes:67108864}") int segmentBytes,
+                           @Value("${app.messages.log.index-interval:32}") int indexInterval,
+                           @Value("${app.messages.log.inbox.queue-capacity:10000}") int queueCapacity,
+                           @Value("${app.messages.log.inbox.batch-size:500}") int batchSize,
+                           @Value("${app.messages.log.inbox.flush-interval-ms:50}") long flushIntervalMs)
+            throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messageRepository = messageRepository;
+        Path dir = Paths.get(logPath).toAbsolutePath().normalize();
+        this.messageLog = new MessageLog(dir, segmentBytes, indexInterval);
+        this.checkpointFile = dir.resolve("inbox.checkpoint");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+
+        this.appended = Counter.builder("echo.messages.log.appended").register(meterRegistry);
+        // fsyncs de fato: appended / syncs é o tamanho médio do grupo
+        this.syncs = Counter.builder("echo.messages.log.syncs").register(meterRegistry);
+        this.compactions = Counter.builder("echo.messages.log.compactions").register(meterRegistry);
+        this.overflow = Counter.builder("echo.messages.log.inbox.overflow").register(meterRegistry);
+        Gauge.builder("echo.messages.log.segments", messageLog, MessageLog::segmentCount).register(meterRegistry);
+        Gauge.builder("echo.messages.log.inbox.queue", queue, BlockingQueue::size).register(meterRegistry);
+
+        this.writer = new Thread(this::runWriter, "message-log-inbox");
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "message-log-compactor");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        long checkpoint = readCheckpoint();
+        List<JournaledMessage> pending = new ArrayList<>();
+        messageLog.forEachSince(checkpoint, e -> pending.add(e.message()));
+        if (!pending.isEmpty()) {
+            log.info("Reaplicando o inbox de {} mensagens do log", pending.size());
+            for (int i = 0; i < pending.size(); i += batchSize) {
+                applyInbox(pending.subList(i, Math.min(i + batchSize, pending.size())));
+            }
+        }
+        checkpoint(messageLog.endPosition());
+        writer.start();
+    }
+
+    @Override
+    public void store(Message message) {
+        JournaledMessage record = JournaledMessage.of(message);
+        long position;
+        boolean queued;
+        try {
+            // log e fila na mesma ordem: o checkpoint do writer cobre tudo antes dele
+            synchronized (messageLog) {
+                position = messageLog.append(record);
+                queued = queue.offer(new Pending(record, position));
+            }
+            if (messageLog.sync(position)) syncs.increment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar mensagem no log", e);
+        }
+        appended.increment();
+
+        if (!queued) {
+            // fila cheia: aplica direto, com backpressure em quem enviou
+            overflow.increment();
+            applyInbox(List.of(record));
+        }
+    }
+
+    @Override
+    public List<MessageDTO> pageBefore(String conversationKey, long before, int limit) {
+        List<MessageDTO> page = new ArrayList<>(limit);
+        for (JournaledMessage m : messageLog.pageBefore(conversationKey, before, limit)) page.add(m.toDTO());
+        if (page.size() < limit && table(conversationKey).maxId() > 0) {
+            // passou do começo do log: continua na tabela, abaixo da mensagem mais antiga já na página
+            long cursor = page.isEmpty() ? before : page.get(page.size() - 1).getId();
+            page.addAll(messageRepository.findPageBefore(conversationKey, cursor, PageRequest.of(0, limit - page.size())));
+        }
+        return page;
+    }
+
+    @Override
+    public List<MessageDTO> pageAfterSeq(String conversationKey, long afterSeq, int limit) {
+        List<MessageDTO> page = new ArrayList<>(limit);
+        // as seqs da tabela vêm antes das do log
+        if (afterSeq < table(conversationKey).lastSeq()) {
+            page.addAll(messageRepository.findPageAfterSeq(conversationKey, afterSeq, PageRequest.of(0, limit)));
+        }
+        if (page.size() < limit) {
+            long cursor = page.isEmpty() ? afterSeq : page.get(page.size() - 1).getSeq();
+            for (JournaledMessage m : messageLog.pageAfterSeq(conversationKey, cursor, limit - page.size())) {
+                page.add(m.toDTO());
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public long lastSeq(String conversationKey) {
+        return Math.max(messageLog.lastSeq(conversationKey), table(conversationKey).lastSeq());
+    }
+
+    // a tabela não muda com o log ligado: uma consulta por conversa enquanto o nó estiver de pé
+    private TableHistory table(String conversationKey) {
+        TableHistory cached = tableHistory.get(conversationKey);
+        if (cached != null) return cached;
+        TableHistory loaded = new TableHistory(messageRepository.findMaxId(conversationKey),
+                messageRepository.findLastSeq(conversationKey));
+        TableHistory raced = tableHistory.putIfAbsent(conversationKey, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        compactor.shutdown();
+        compactor.awaitTermination(30, TimeUnit.SECONDS);
+        messageLog.close();
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                if (!flushWithRetry(batch)) return;
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // false quando desistiu (desligamento com o banco fora)
+    private boolean flushWithRetry(List<Pending> batch) throws InterruptedException {
+        List<JournaledMessage> records = batch.stream().map(Pending::record).toList();
+        long backoff = 100;
+        while (true) {
+            try {
+                applyInbox(records);
+                break;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.warn("Inbox pendente não aplicado no desligamento; será reaplicado do log");
+                    return false;
+                }
+                log.error("Falha ao aplicar inbox de {} mensagens, nova tentativa em {} ms",
+                        records.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+        try {
+            checkpoint(batch.get(batch.size() - 1).position());
+        } catch (IOException e) {
+            log.warn("Falha ao gravar o checkpoint do inbox", e);
+        }
+        return true;
+    }
+
+    private void applyInbox(List<JournaledMessage> records) {
+        transactionTemplate.executeWithoutResult(status -> InboxUpdate.applyAll(jdbcTemplate, records));
+    }
+
+    // grava ao lado e troca; depois agenda a compactação do que ficou para trás
+    private void checkpoint(long position) throws IOException {
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(ByteBuffer.allocate(8).putLong(0, position));
+            ch.force(false);
+        }
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long segment : messageLog.compactable(MessageLog.segmentOf(position))) {
+            if (!compacting.add(segment)) continue;
+            compactor.execute(() -> {
+                try {
+                    messageLog.compact(segment);
+                    compactions.increment();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Falha ao compactar o segmento {} do log", segment, e);
+                } finally {
+                    compacting.remove(segment);
+                }
+            });
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) return 0;
+        byte[] bytes = Files.readAllBytes(checkpointFile);
+        return bytes.length == 8 ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    private record Pending(JournaledMessage record, long position) {}
+
+    private record TableHistory(long maxId, long lastSeq) {}
+}
@@ -0,0 +1,50 @@
+package com.backend.echo.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gera ids de mensagem no estilo snowflake: 41 bits de milissegundos desde EPOCH,
+ * 4 bits de nó e 8 bits de sequência. Os ids crescem com o tempo, então a ordem
+ * por id acompanha a ordem de chegada, e podem ser publicados antes do commit.
+ * O total de 53 bits mantém o id exato como number no frontend (Number.MAX_SAFE_INTEGER).
+ */
+@Component
+public class MessageIdGenerator {
+
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 4;
+    private static final int SEQUENCE_BITS = 8;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public MessageIdGenerator(@Value("${app.node-id:0}") long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("app.node-id deve estar entre 0 e " + MAX_NODE);
+        }
+        this.node = node;
+    }
+
+    public synchronized long nextId() {
+        long now = System.currentTimeMillis();
+        if (now < lastMillis) {
+            // relógio voltou: continua no último milissegundo emitido
+            now = lastMillis;
+        }
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // sequência esgotada neste milissegundo: avança para o próximo
+                now = lastMillis + 1;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return ((now - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+}
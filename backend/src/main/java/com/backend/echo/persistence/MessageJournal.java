@@ -0,0 +1,215 @@
+package com.backend.echo.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal local (append-only, em segmentos numerados) das mensagens aceitas pelo
+ * write-behind. Cada registro é [tamanho][crc32][payload]; um registro truncado no fim
+ * do arquivo (queda no meio da escrita) é descartado na recuperação.
+ *
+ * Escritas e rotação são sincronizadas na instância; o fsync é agrupado em sync(),
+ * de forma que um único force() cobre todas as escritas feitas até ali.
+ */
+class MessageJournal implements Closeable {
+
+    private static final String SUFFIX = ".journal";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Object syncLock = new Object();
+
+    private FileChannel channel;
+    private long segment;
+    private long written; // bytes escritos desde a abertura (todos os segmentos)
+    private long synced;  // guardado por syncLock
+
+    MessageJournal(Path dir, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        this.segment = existingSegments().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        this.channel = open(segment);
+    }
+
+    /** Registros de segmentos deixados por uma execução anterior, em ordem de escrita. */
+    List<JournaledMessage> recover() throws IOException {
+        List<JournaledMessage> out = new ArrayList<>();
+        for (long s : existingSegments()) {
+            if (s >= segment) continue;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file(s)))) {
+                readAll(new DataInputStream(in), out);
+            }
+        }
+        return out;
+    }
+
+    /** Escreve o registro (sem fsync) e devolve o segmento em que ele ficou. */
+    synchronized long append(JournaledMessage m) throws IOException {
+        byte[] payload = encode(m);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+        buf.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        written += buf.limit();
+        return segment;
+    }
+
+    /** Garante em disco tudo o que foi escrito até agora. */
+    void sync() throws IOException {
+        long target;
+        synchronized (this) {
+            target = written;
+        }
+        synchronized (syncLock) {
+            if (synced >= target) return; // outro thread já cobriu esta escrita
+            long upTo;
+            FileChannel ch;
+            synchronized (this) {
+                upTo = written;
+                ch = channel;
+            }
+            // fora do lock da instância: novas escritas seguem durante o fsync;
+            // a rotação também precisa de syncLock, então o canal não fecha aqui
+            ch.force(false);
+            synced = upTo;
+        }
+    }
+
+    /** Troca de segmento quando o atual passou do limite. */
+    void rotateIfNeeded() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (channel.size() < segmentBytes) return;
+                channel.force(false);
+                synced = written;
+                channel.close();
+                segment++;
+                channel = open(segment);
+            }
+        }
+    }
+
+    /** Apaga segmentos anteriores a {@code upTo}; seus registros já estão no banco. */
+    void deleteBefore(long upTo) throws IOException {
+        for (long s : existingSegments()) {
+            if (s < upTo) Files.deleteIfExists(file(s));
+        }
+    }
+
+    synchronized long currentSegment() {
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    private FileChannel open(long s) throws IOException {
+        return FileChannel.open(file(s), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path file(long s) {
+        return dir.resolve(String.format("%016d%s", s, SUFFIX));
+    }
+
+    private List<Long> existingSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(0, n.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void readAll(DataInputStream in, List<JournaledMessage> out) throws IOException {
+        while (true) {
+            int len;
+            int crcValue;
+            byte[] payload;
+            try {
+                len = in.readInt();
+                crcValue = in.readInt();
+                if (len < 0 || len > 16 * 1024 * 1024) return;
+                payload = new byte[len];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                return; // fim do arquivo ou registro truncado
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != crcValue) return;
+            out.add(decode(payload));
+        }
+    }
+
+    static byte[] encode(JournaledMessage m) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(m.id());
+        out.writeLong(m.senderId());
+        out.writeLong(m.receiverId());
+        writeString(out, m.content());
+        writeString(out, m.mediaUrl());
+        writeString(out, m.timestamp().toString());
+        out.writeLong(m.seq()); // sempre os últimos 8 bytes: o MessageLog lê sem decodificar
+        return bytes.toByteArray();
+    }
+
+    static JournaledMessage decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long id = in.readLong();
+        long sender = in.readLong();
+        long receiver = in.readLong();
+        String content = readString(in);
+        String mediaUrl = readString(in);
+        LocalDateTime timestamp = LocalDateTime.parse(readString(in));
+        long seq = in.available() >= 8 ? in.readLong() : 0; // journal gravado antes da sequência
+        return new JournaledMessage(id, sender, receiver, content, mediaUrl, timestamp, seq);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
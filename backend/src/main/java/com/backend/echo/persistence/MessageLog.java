@@ -0,0 +1,613 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.util.ConversationKeys;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log append-only das mensagens em segmentos mapeados em memória. Cada registro é
+ * [tamanho][crc32][anterior][payload], onde "anterior" é o offset, no mesmo segmento, do
+ * registro anterior da mesma conversa (-1 no primeiro): dentro de um segmento, uma conversa é
+ * uma lista encadeada do mais novo para o mais antigo.
+ *
+ * Em memória, por conversa, um trecho por segmento com o último registro, o intervalo de ids
+ * e um índice esparso (id, seq, offset) a cada {@code indexInterval} registros, para começar a
+ * leitura perto do cursor (id no histórico, seq no sync). O índice é reconstruído na abertura
+ * lendo os segmentos em ordem. A seq fica nos últimos 8 bytes do payload.
+ *
+ * Segmentos fechados (.log, intercalados na ordem de chegada) são compactados em .seg: mesmos
+ * registros agrupados por conversa e ordenados por id, sem a sobra do fim, então uma página de
+ * histórico antigo é uma leitura sequencial. A compactação junta o segmento aos .seg logo
+ * antes dele enquanto couberem em {@link #MERGE_SEGMENTS} segmentos; o .seg novo leva no nome
+ * o intervalo que cobre ("primeiro-último.seg") e os arquivos substituídos são desmapeados e
+ * apagados, então o número de mapeamentos cresce com o volume, não com o tempo de execução.
+ * Posições (segmento << 32 | offset) só valem nos segmentos ainda não compactados.
+ *
+ * Na abertura, o último .log volta a ser o segmento ativo e recebe os próximos registros a
+ * partir do último válido; reiniciar não cria um segmento novo.
+ *
+ * Escritas sob o write lock; leituras sob o read lock. O fsync é agrupado em sync(): um único
+ * force() cobre tudo o que foi escrito até ali.
+ */
+class MessageLog implements Closeable {
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String COMPACT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 12;
+    private static final int NONE = -1;
+    // ids são gerados logo antes do append: dois envios simultâneos na mesma conversa podem
+    // entrar fora de ordem no segmento ativo; a leitura olha alguns registros além da página
+    private static final int LOOKAHEAD = 8;
+    // tamanho máximo de um .seg, em segmentos
+    private static final int MERGE_SEGMENTS = 4;
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // sem o jdk.unsupported: o mapeamento sai com o GC do buffer
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int indexInterval;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object syncLock = new Object();
+
+    // guardados por lock
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final HashMap<String, Conversation> conversations = new HashMap<>();
+    private Segment active;
+
+    private long syncedPosition; // guardado por syncLock
+
+    MessageLog(Path dir, int segmentBytes, int indexInterval) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.indexInterval = indexInterval;
+        Files.createDirectories(dir);
+        load();
+        if (active == null) {
+            long next = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+            active = create(next);
+            segments.put(next, active);
+        }
+    }
+
+    /** Registro lido do log com a posição logo depois dele. */
+    record Entry(JournaledMessage message, long end) {}
+
+    private static final class Segment {
+        final long first; // menor segmento coberto; o próprio número fora de um .seg juntado
+        final long number;
+        final MappedByteBuffer buffer; // escrita absoluta, nunca pela posição do buffer
+        final boolean compacted;
+        int size; // bytes válidos
+
+        Segment(long first, long number, MappedByteBuffer buffer, boolean compacted, int size) {
+            this.first = first;
+            this.number = number;
+            this.buffer = buffer;
+            this.compacted = compacted;
+            this.size = size;
+        }
+    }
+
+    /** Registros de uma conversa dentro de um segmento. */
+    private static final class Run {
+        final Segment segment;
+        int tail = NONE;
+        int count;
+        long firstId = Long.MAX_VALUE;
+        long lastId = Long.MIN_VALUE;
+        long maxSeq;
+        long[] sparseIds = new long[4];
+        long[] sparseSeqs = new long[4];
+        int[] sparseOffsets = new int[4];
+        int sparseSize;
+
+        Run(Segment segment) {
+            this.segment = segment;
+        }
+
+        void add(int offset, long id, long seq, int interval) {
+            if (count % interval == 0) {
+                if (sparseSize == sparseIds.length) {
+                    sparseIds = Arrays.copyOf(sparseIds, sparseSize * 2);
+                    sparseSeqs = Arrays.copyOf(sparseSeqs, sparseSize * 2);
+                    sparseOffsets = Arrays.copyOf(sparseOffsets, sparseSize * 2);
+                }
+                sparseIds[sparseSize] = id;
+                sparseSeqs[sparseSize] = seq;
+                sparseOffsets[sparseSize++] = offset;
+            }
+            tail = offset;
+            count++;
+            firstId = Math.min(firstId, id);
+            lastId = Math.max(lastId, id);
+            maxSeq = Math.max(maxSeq, seq);
+        }
+
+        // de onde descer a lista para achar ids < before: o ponto esparso depois do primeiro
+        // com id >= before (um intervalo de folga para a desordem), ou o fim do trecho
+        int start(long before) {
+            if (lastId < before) return tail;
+            int lo = 0;
+            int hi = sparseSize;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sparseIds[mid] < before) lo = mid + 1; else hi = mid;
+            }
+            return lo + 1 < sparseSize ? sparseOffsets[lo + 1] : tail;
+        }
+
+        // de onde descer a lista para achar as primeiras "limit" seqs > afterSeq: conta registros,
+        // não seqs (uma seq perdida numa falha de gravação não encurta a página), a partir do
+        // último ponto esparso com seq <= afterSeq, com um intervalo de folga
+        int startAfterSeq(long afterSeq, int limit, int interval) {
+            int lo = 0;
+            int hi = sparseSize;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sparseSeqs[mid] <= afterSeq) lo = mid + 1; else hi = mid;
+            }
+            int point = lo + (limit + interval - 1) / interval + 1;
+            return point < sparseSize ? sparseOffsets[point] : tail;
+        }
+    }
+
+    private static final class Conversation {
+        final ArrayList<Run> runs = new ArrayList<>(2); // por segmento, do mais antigo ao mais novo
+
+        Run runFor(Segment segment) {
+            Run last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (last != null && last.segment == segment) return last;
+            Run run = new Run(segment);
+            runs.add(run);
+            return run;
+        }
+
+        // os segmentos juntados são vizinhos: os trechos deles também
+        void replace(List<Segment> old, Run run) {
+            int at = runs.size();
+            for (int i = runs.size() - 1; i >= 0; i--) {
+                if (old.contains(runs.get(i).segment)) {
+                    runs.remove(i);
+                    at = i;
+                }
+            }
+            runs.add(at, run);
+        }
+    }
+
+    /** Escreve o registro (sem fsync) e devolve a posição logo depois dele. */
+    long append(JournaledMessage m) throws IOException {
+        byte[] payload = MessageJournal.encode(m);
+        int length = HEADER_BYTES + payload.length;
+        if (length > segmentBytes) throw new IllegalArgumentException("Mensagem maior que o segmento do log");
+        lock.writeLock().lock();
+        try {
+            if (active.size + length > segmentBytes) rotate();
+            Run run = conversations.computeIfAbsent(ConversationKeys.of(m.senderId(), m.receiverId()),
+                    k -> new Conversation()).runFor(active);
+            int offset = active.size;
+            MappedByteBuffer b = active.buffer;
+            b.putInt(offset + 8, run.tail);
+            b.put(offset + HEADER_BYTES, payload);
+            b.putInt(offset + 4, crc(b, offset, payload.length));
+            b.putInt(offset, payload.length);
+            active.size += length;
+            run.add(offset, m.id(), m.seq(), indexInterval);
+            return position(active.number, active.size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Garante em disco tudo o que foi escrito até {@code position}; devolve false se já estava. */
+    boolean sync(long position) {
+        synchronized (syncLock) {
+            if (syncedPosition >= position) return false; // outro thread já cobriu esta escrita
+            Segment segment;
+            int end;
+            lock.readLock().lock();
+            try {
+                segment = active;
+                end = segment.size;
+            } finally {
+                lock.readLock().unlock();
+            }
+            // segmentos anteriores foram forçados inteiros na rotação
+            int from = segmentOf(syncedPosition) == segment.number ? offsetOf(syncedPosition) : 0;
+            // fora do lock: novas escritas seguem durante o fsync
+            if (end > from) segment.buffer.force(from, end - from);
+            syncedPosition = position(segment.number, end);
+            return true;
+        }
+    }
+
+    /** Até {@code limit} mensagens da conversa com id &lt; before, mais recentes primeiro. */
+    List<JournaledMessage> pageBefore(String conversationKey, long before, int limit) {
+        List<JournaledMessage> out = new ArrayList<>(limit + LOOKAHEAD);
+        lock.readLock().lock();
+        try {
+            Conversation conversation = conversations.get(conversationKey);
+            if (conversation == null) return out;
+            runs:
+            for (int i = conversation.runs.size() - 1; i >= 0; i--) {
+                Run run = conversation.runs.get(i);
+                if (run.firstId >= before) continue;
+                MappedByteBuffer b = run.segment.buffer;
+                for (int o = run.start(before); o != NONE; o = b.getInt(o + 8)) {
+                    if (b.getLong(o + HEADER_BYTES) >= before) continue;
+                    out.add(read(b, o));
+                    if (out.size() >= limit + LOOKAHEAD) break runs;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.sort(Comparator.comparingLong(JournaledMessage::id).reversed());
+        return out.size() > limit ? new ArrayList<>(out.subList(0, limit)) : out;
+    }
+
+    /** Até {@code limit} mensagens da conversa com seq &gt; afterSeq, em ordem de seq. */
+    List<JournaledMessage> pageAfterSeq(String conversationKey, long afterSeq, int limit) {
+        List<JournaledMessage> out = new ArrayList<>(limit + LOOKAHEAD);
+        lock.readLock().lock();
+        try {
+            Conversation conversation = conversations.get(conversationKey);
+            if (conversation == null) return out;
+            for (Run run : conversation.runs) {
+                if (run.maxSeq <= afterSeq) continue;
+                MappedByteBuffer b = run.segment.buffer;
+                int start = run.startAfterSeq(afterSeq, limit, indexInterval);
+                int older = 0;
+                for (int o = start; o != NONE && older < LOOKAHEAD; o = b.getInt(o + 8)) {
+                    if (seqAt(b, o) > afterSeq) out.add(read(b, o)); else older++;
+                }
+                // começou no meio do trecho: o que ficou depois tem seqs maiores que a página
+                if (start != run.tail || out.size() >= limit + LOOKAHEAD) break;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.sort(Comparator.comparingLong(JournaledMessage::seq));
+        return out.size() > limit ? new ArrayList<>(out.subList(0, limit)) : out;
+    }
+
+    /** Maior seq gravada na conversa, 0 se nenhuma. */
+    long lastSeq(String conversationKey) {
+        lock.readLock().lock();
+        try {
+            Conversation conversation = conversations.get(conversationKey);
+            if (conversation == null) return 0;
+            long max = 0;
+            for (Run run : conversation.runs) max = Math.max(max, run.maxSeq);
+            return max;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Registros gravados a partir de {@code position}, em ordem de escrita (só segmentos não compactados). */
+    void forEachSince(long position, Consumer<Entry> consumer) {
+        lock.readLock().lock();
+        try {
+            for (Segment s : segments.tailMap(segmentOf(position), true).values()) {
+                if (s.compacted) continue; // só é compactado o que já foi aplicado
+                int o = s.number == segmentOf(position) ? offsetOf(position) : 0;
+                while (o < s.size) {
+                    int length = HEADER_BYTES + s.buffer.getInt(o);
+                    consumer.accept(new Entry(read(s.buffer, o), position(s.number, o + length)));
+                    o += length;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long endPosition() {
+        lock.readLock().lock();
+        try {
+            return position(active.number, active.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Segmentos fechados, ainda intercalados, anteriores a {@code beforeSegment}. */
+    List<Long> compactable(long beforeSegment) {
+        lock.readLock().lock();
+        try {
+            return segments.headMap(Math.min(beforeSegment, active.number), false).values().stream()
+                    .filter(s -> !s.compacted).map(s -> s.number).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reescreve um segmento fechado junto com os .seg logo antes dele (até
+     * {@link #MERGE_SEGMENTS} segmentos), com as conversas contíguas e ordenadas por id. O
+     * arquivo novo é gravado ao lado e trocado de uma vez; o índice passa a apontar para ele no
+     * fim e os arquivos substituídos são desmapeados e apagados. Um compact por vez.
+     */
+    void compact(long number) throws IOException {
+        List<Segment> group = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Segment old = segments.get(number);
+            if (old == null || old.compacted || old == active) return;
+            long limit = (long) segmentBytes * MERGE_SEGMENTS;
+            long total = old.size;
+            for (Segment prev : segments.headMap(number, false).descendingMap().values()) {
+                if (!prev.compacted || total + prev.size > Math.min(limit, Integer.MAX_VALUE)) break;
+                total += prev.size;
+                group.add(0, prev);
+            }
+            group.add(old);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // segmentos fechados não mudam mais: lidos sem lock
+        Map<String, List<long[]>> byConversation = new LinkedHashMap<>();
+        int total = 0;
+        for (int g = 0; g < group.size(); g++) {
+            Segment s = group.get(g);
+            MappedByteBuffer in = s.buffer;
+            for (int o = 0; o < s.size; o += HEADER_BYTES + in.getInt(o)) {
+                String key = ConversationKeys.of(in.getLong(o + HEADER_BYTES + 8), in.getLong(o + HEADER_BYTES + 16));
+                byConversation.computeIfAbsent(key, k -> new ArrayList<>())
+                        .add(new long[]{in.getLong(o + HEADER_BYTES), g, o, seqAt(in, o)});
+            }
+            total += s.size;
+        }
+
+        long first = group.get(0).first;
+        Path tmp = compactedFile(first, number).resolveSibling(compactedFile(first, number).getFileName() + ".tmp");
+        Segment fresh;
+        Map<String, Run> runs = new HashMap<>();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            fresh = new Segment(first, number, ch.map(FileChannel.MapMode.READ_WRITE, 0, total), true, total);
+            MappedByteBuffer out = fresh.buffer;
+            int w = 0;
+            for (Map.Entry<String, List<long[]>> e : byConversation.entrySet()) {
+                List<long[]> records = e.getValue();
+                records.sort(Comparator.comparingLong(r -> r[0]));
+                Run run = new Run(fresh);
+                for (long[] r : records) {
+                    MappedByteBuffer in = group.get((int) r[1]).buffer;
+                    int from = (int) r[2];
+                    int payload = in.getInt(from);
+                    out.putInt(w + 8, run.tail);
+                    out.put(w + HEADER_BYTES, in, from + HEADER_BYTES, payload);
+                    out.putInt(w + 4, crc(out, w, payload));
+                    out.putInt(w, payload);
+                    run.add(w, r[0], r[3], indexInterval);
+                    w += HEADER_BYTES + payload;
+                }
+                runs.put(e.getKey(), run);
+            }
+            out.force();
+        }
+        // daqui em diante o .seg novo vale; uma queda antes de apagar os antigos é resolvida no load()
+        Files.move(tmp, compactedFile(first, number), StandardCopyOption.ATOMIC_MOVE);
+
+        lock.writeLock().lock();
+        try {
+            for (Segment s : group) segments.remove(s.number);
+            segments.put(number, fresh);
+            runs.forEach((key, run) -> conversations.get(key).replace(group, run));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // leitores só chegam aos buffers sob o lock, e o sync() só força o ativo
+        synchronized (syncLock) {
+            for (Segment s : group) unmap(s.buffer);
+        }
+        for (Segment s : group) Files.deleteIfExists(fileOf(s));
+    }
+
+    int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            active.buffer.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // sob o write lock: o segmento cheio vai inteiro para o disco antes de abrir o próximo
+    private void rotate() throws IOException {
+        active.buffer.force();
+        Segment next = create(active.number + 1);
+        segments.put(next.number, next);
+        active = next;
+    }
+
+    private Segment create(long number) throws IOException {
+        try (FileChannel ch = FileChannel.open(file(number, LOG_SUFFIX), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // o mapeamento continua válido depois de fechar o canal
+            return new Segment(number, number, ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes), false, 0);
+        }
+    }
+
+    private record Found(long first, long last, Path path, boolean compacted) {
+        boolean coveredBy(Found other) {
+            return other != this && other.compacted && other.first <= first && last <= other.last;
+        }
+    }
+
+    // abre os segmentos existentes e refaz o índice; o último .log volta a ser o ativo
+    private void load() throws IOException {
+        List<Found> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(p); // compactação interrompida
+                } else if (name.endsWith(COMPACT_SUFFIX)) {
+                    String[] range = name.substring(0, name.length() - COMPACT_SUFFIX.length()).split("-");
+                    found.add(new Found(Long.parseLong(range[0]), Long.parseLong(range[range.length - 1]), p, true));
+                } else if (name.endsWith(LOG_SUFFIX)) {
+                    long number = Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length()));
+                    found.add(new Found(number, number, p, false));
+                }
+            }
+        }
+        // queda entre o move da compactação e a remoção dos originais: o .seg novo cobre os antigos
+        List<Found> live = new ArrayList<>();
+        for (Found f : found) {
+            if (found.stream().anyMatch(f::coveredBy)) Files.deleteIfExists(f.path()); else live.add(f);
+        }
+        live.sort(Comparator.comparingLong(Found::last));
+
+        for (int i = 0; i < live.size(); i++) {
+            Found f = live.get(i);
+            boolean resume = i == live.size() - 1 && !f.compacted();
+            MappedByteBuffer buffer;
+            try (FileChannel ch = resume
+                    ? FileChannel.open(f.path(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(f.path(), StandardOpenOption.READ)) {
+                resume &= ch.size() == segmentBytes; // segment-bytes mudou: abre um segmento novo
+                buffer = ch.map(resume ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+            Segment segment = new Segment(f.first(), f.last(), buffer, f.compacted(), 0);
+            segment.size = scan(segment);
+            segments.put(segment.number, segment);
+            if (resume) {
+                clearTornTail(segment);
+                active = segment;
+            }
+        }
+    }
+
+    // o resto de um registro cortado não pode parecer válido depois do próximo append
+    private static void clearTornTail(Segment s) {
+        MappedByteBuffer b = s.buffer;
+        if (s.size + HEADER_BYTES > b.capacity()) return;
+        long claimed = HEADER_BYTES + Math.max(0, b.getInt(s.size));
+        int end = (int) Math.min(b.capacity(), s.size + claimed);
+        for (int o = s.size; o < end; o++) b.put(o, (byte) 0);
+        b.force(s.size, end - s.size);
+    }
+
+    // percorre os registros válidos; o primeiro vazio ou com crc errado (queda no meio da escrita) é o fim
+    private int scan(Segment s) {
+        MappedByteBuffer b = s.buffer;
+        int o = 0;
+        while (o + HEADER_BYTES <= b.capacity()) {
+            int payload = b.getInt(o);
+            if (payload <= 0 || o + HEADER_BYTES + payload > b.capacity()) break;
+            if (b.getInt(o + 4) != crc(b, o, payload)) break;
+            long id = b.getLong(o + HEADER_BYTES);
+            String key = ConversationKeys.of(b.getLong(o + HEADER_BYTES + 8), b.getLong(o + HEADER_BYTES + 16));
+            conversations.computeIfAbsent(key, k -> new Conversation()).runFor(s).add(o, id, seqAt(b, o), indexInterval);
+            o += HEADER_BYTES + payload;
+        }
+        return o;
+    }
+
+    private static JournaledMessage read(ByteBuffer b, int offset) {
+        byte[] payload = new byte[b.getInt(offset)];
+        b.get(offset + HEADER_BYTES, payload);
+        try {
+            return MessageJournal.decode(payload);
+        } catch (IOException e) {
+            throw new IllegalStateException("Registro corrompido no log de mensagens", e);
+        }
+    }
+
+    private static long seqAt(ByteBuffer b, int offset) {
+        return b.getLong(offset + HEADER_BYTES + b.getInt(offset) - 8);
+    }
+
+    // cobre "anterior" e o payload
+    private static int crc(ByteBuffer b, int offset, int payload) {
+        CRC32 crc = new CRC32();
+        crc.update(b.slice(offset + 8, 4 + payload));
+        return (int) crc.getValue();
+    }
+
+    private Path file(long number, String suffix) {
+        return dir.resolve(String.format("%016d%s", number, suffix));
+    }
+
+    private Path compactedFile(long first, long last) {
+        return first == last ? file(last, COMPACT_SUFFIX) : dir.resolve(String.format("%016d-%016d%s", first, last, COMPACT_SUFFIX));
+    }
+
+    private Path fileOf(Segment s) {
+        return s.compacted ? compactedFile(s.first, s.number) : file(s.number, LOG_SUFFIX);
+    }
+
+    // libera o mapeamento na hora, sem esperar o GC; ninguém pode ler o buffer depois
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // fica para o GC
+        }
+    }
+
+    static long position(long segment, int offset) {
+        return (segment << 32) | offset;
+    }
+
+    static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+}
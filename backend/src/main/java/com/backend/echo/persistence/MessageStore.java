@@ -0,0 +1,28 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.entity.Message;
+
+import java.util.List;
+
+/**
+ * Onde as mensagens do chat são gravadas e lidas. A implementação é escolhida por
+ * app.messages.store: jpa (padrão), write-behind ou log (segmentos locais, um nó só).
+ */
+public interface MessageStore {
+
+    /**
+     * Grava a mensagem (com id já atribuído). Ao retornar, a mensagem não pode mais ser
+     * perdida, mas pode ainda não estar visível no banco.
+     */
+    void store(Message message);
+
+    /** Até {@code limit} mensagens da conversa com id &lt; before, mais recentes primeiro. */
+    List<MessageDTO> pageBefore(String conversationKey, long before, int limit);
+
+    /** Até {@code limit} mensagens da conversa com seq &gt; afterSeq, em ordem de seq. */
+    List<MessageDTO> pageAfterSeq(String conversationKey, long afterSeq, int limit);
+
+    /** Maior seq gravada na conversa (0 se nenhuma); ponto de partida do ConversationSequences. */
+    long lastSeq(String conversationKey);
+}
@@ -0,0 +1,265 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.entity.Message;
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.repository.MessageRepository;
+import com.backend.echo.util.ConversationKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistência write-behind: a mensagem é gravada no journal local (com fsync agrupado)
+ * e entra numa fila limitada; um único writer grava a fila no banco em lotes
+ * (multi-row insert com rewriteBatchedStatements), por tamanho ou por tempo.
+ *
+ * Os ids vêm do MessageIdGenerator, então a mensagem pode ser publicada antes do commit.
+ * Na inicialização, o que sobrou no journal e ainda não está no banco é regravado.
+ *
+ * A seq de cada mensagem fica em andamento no ConversationSequences até o commit do lote:
+ * o sync que cai no banco não vê a seq N+1 antes da N.
+ */
+@Component
+@ConditionalOnProperty(name = "app.messages.store", havingValue = "write-behind")
+public class WriteBehindMessageStore implements MessageStore {
+
+    private static final String INSERT_SQL = """
+            insert ignore into message (id, sender_id, receiver_id, conversation_key, content, media_url, timestamp, seq)
+            values (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+
+    private final Logger log = LoggerFactory.getLogger(WriteBehindMessageStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConversationSequences sequences;
+    private final MessageJournal journal;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Counter flushed;
+    private final Counter overflow;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+    private long deletedBefore; // só o writer usa
+
+    public WriteBehindMessageStore(JdbcTemplate jdbcTemplate,
+                                   MessageRepository messageRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   // @Lazy: o ConversationSequences lê a última seq deste store
+                                   @Lazy ConversationSequences sequences,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.messages.write-behind.journal-path:./data/journal}") String journalPath,
+                                   @Value("${app.messages.write-behind.segment-bytes:67108864}") long segmentBytes,
+                                   @Value("${app.messages.write-behind.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${app.messages.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${app.messages.write-behind.flush-interval-ms:50}") long flushIntervalMs)
+            throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.sequences = sequences;
+        this.journal = new MessageJournal(Paths.get(journalPath).toAbsolutePath().normalize(), segmentBytes);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+
+        Gauge.builder("echo.messages.write_behind.queue", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushed = Counter.builder("echo.messages.write_behind.flushed").register(meterRegistry);
+        this.overflow = Counter.builder("echo.messages.write_behind.overflow").register(meterRegistry);
+
+        this.writer = new Thread(this::runWriter, "message-writer");
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        List<JournaledMessage> pending = journal.recover();
+        if (!pending.isEmpty()) {
+            log.info("Regravando {} mensagens do journal", pending.size());
+            for (int i = 0; i < pending.size(); i += batchSize) {
+                List<JournaledMessage> chunk = pending.subList(i, Math.min(i + batchSize, pending.size()));
+                // o que já chegou ao banco fica de fora, senão o inbox contaria não lidas de novo
+                Set<Long> existing = existingIds(chunk);
+                List<JournaledMessage> missing = chunk.stream().filter(m -> !existing.contains(m.id())).toList();
+                if (!missing.isEmpty()) insert(missing);
+            }
+        }
+        journal.deleteBefore(journal.currentSegment());
+        writer.start();
+    }
+
+    @Override
+    public void store(Message message) {
+        JournaledMessage record = JournaledMessage.of(message);
+        String key = ConversationKeys.of(record.senderId(), record.receiverId());
+        // só fica legível no banco depois do commit do writer
+        sequences.hold(key, record.seq());
+        boolean queued;
+        try {
+            // journal e fila na mesma ordem: o writer pode apagar segmentos antigos
+            // assim que gravar um registro de um segmento mais novo
+            synchronized (journal) {
+                long segment = journal.append(record);
+                queued = queue.offer(new Pending(record, segment));
+            }
+            journal.sync();
+        } catch (IOException e) {
+            sequences.done(key, record.seq());
+            throw new UncheckedIOException("Falha ao gravar mensagem no journal", e);
+        }
+
+        if (!queued) {
+            // fila cheia: grava direto, aplicando backpressure em quem enviou
+            overflow.increment();
+            try {
+                insert(List.of(record));
+            } finally {
+                sequences.done(key, record.seq());
+            }
+        }
+    }
+
+    // só o que já chegou ao banco; o recém-enviado fica no RecentMessagesCache
+    @Override
+    public List<MessageDTO> pageBefore(String conversationKey, long before, int limit) {
+        return messageRepository.findPageBefore(conversationKey, before, PageRequest.of(0, limit));
+    }
+
+    // idem: o delta mais recente vem do RecentMessagesCache
+    @Override
+    public List<MessageDTO> pageAfterSeq(String conversationKey, long afterSeq, int limit) {
+        return messageRepository.findPageAfterSeq(conversationKey, afterSeq, PageRequest.of(0, limit));
+    }
+
+    // só é consultado antes da primeira mensagem da conversa nesta execução, e o journal da
+    // execução anterior já foi regravado no start(): o banco tem a última seq
+    @Override
+    public long lastSeq(String conversationKey) {
+        return messageRepository.findLastSeq(conversationKey);
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        journal.close();
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                if (!flushWithRetry(batch)) return;
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // false quando desistiu (desligamento com o banco fora)
+    private boolean flushWithRetry(List<Pending> batch) throws InterruptedException {
+        List<JournaledMessage> records = batch.stream().map(Pending::record).toList();
+        long backoff = 100;
+        while (true) {
+            try {
+                insert(records);
+                break;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    // desligando com o banco fora: o journal cobre o que ficou
+                    log.warn("Mensagens pendentes não gravadas no desligamento; ficam no journal");
+                    return false;
+                }
+                log.error("Falha ao gravar lote de {} mensagens, nova tentativa em {} ms",
+                        records.size(), backoff, e);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+        flushed.increment(records.size());
+        for (JournaledMessage m : records) sequences.done(ConversationKeys.of(m.senderId(), m.receiverId()), m.seq());
+
+        // a fila é FIFO e só este thread consome: tudo de segmentos anteriores ao
+        // último registro gravado já está no banco
+        long lastSegment = batch.get(batch.size() - 1).segment();
+        try {
+            journal.rotateIfNeeded();
+            if (lastSegment > deletedBefore) {
+                journal.deleteBefore(lastSegment);
+                deletedBefore = lastSegment;
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao rotacionar/limpar o journal", e);
+        }
+        return true;
+    }
+
+    private void insert(List<JournaledMessage> records) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL, records, records.size(), (ps, m) -> {
+                ps.setLong(1, m.id());
+                ps.setLong(2, m.senderId());
+                ps.setLong(3, m.receiverId());
+                ps.setString(4, ConversationKeys.of(m.senderId(), m.receiverId()));
+                ps.setString(5, m.content());
+                ps.setString(6, m.mediaUrl());
+                ps.setTimestamp(7, Timestamp.valueOf(m.timestamp()));
+                if (m.seq() > 0) ps.setLong(8, m.seq()); else ps.setNull(8, Types.BIGINT);
+            });
+            // o inbox vai na mesma transação que as mensagens
+            InboxUpdate.applyAll(jdbcTemplate, records);
+        });
+    }
+
+    private Set<Long> existingIds(List<JournaledMessage> records) {
+        String placeholders = String.join(",", Collections.nCopies(records.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList("select id from message where id in (" + placeholders + ")",
+                Long.class, records.stream().map(JournaledMessage::id).toArray()));
+    }
+
+    private record Pending(JournaledMessage record, long segment) {}
+}
@@ -4,10 +4,17 @@ package com.backend.echo.repository;
 import com.backend.echo.entity.Block;
 import com.backend.echo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface BlockRepository extends JpaRepository<Block, Long> {
     boolean existsByBlockerAndBlocked(User blocker, User blocked);
     List<Block> findByBlocker(User blocker);
+
+    @Query("select b.blocked.id from Block b where b.blocker.id = :userId")
+    List<Long> findBlockedIds(Long userId);
+
+    @Query("select b.blocker.id from Block b where b.blocked.id = :userId")
+    List<Long> findBlockerIds(Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.backend.echo.repository;
+
+import com.backend.echo.dto.ConversationDTO;
+import com.backend.echo.entity.Conversation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    // upsert de uma linha do inbox; o snapshot só avança se a mensagem for mais nova.
+    // last_message_id é atribuído por último porque o MySQL avalia as atribuições em ordem.
+    // Parâmetros posicionais simples: o mesmo texto serve ao @Query e ao JdbcTemplate (InboxUpdate).
+    String UPSERT_SQL = """
+            insert into conversations (owner_id, peer_id, conversation_key, last_message_id, last_sender_id,
+                                       last_message_preview, last_activity_at, unread_count)
+            values (?, ?, ?, ?, ?, ?, ?, ?)
+            on duplicate key update
+                last_sender_id = case when values(last_message_id) > last_message_id
+                                      then values(last_sender_id) else last_sender_id end,
+                last_message_preview = case when values(last_message_id) > last_message_id
+                                            then values(last_message_preview) else last_message_preview end,
+                last_activity_at = case when values(last_message_id) > last_message_id
+                                        then values(last_activity_at) else last_activity_at end,
+                unread_count = unread_count + values(unread_count),
+                last_message_id = greatest(last_message_id, values(last_message_id))
+            """;
+
+    @Modifying
+    @Query(value = UPSERT_SQL, nativeQuery = true)
+    void upsert(Long ownerId, Long peerId, String conversationKey, Long lastMessageId, Long lastSenderId,
+                String lastMessagePreview, LocalDateTime lastActivityAt, int unreadIncrement);
+
+    // página do inbox, mais recentes primeiro; usa idx_conversation_owner_recent
+    @Query("""
+           select new com.backend.echo.dto.ConversationDTO(
+               c.peerId, u.username, u.avatarUrl, c.lastMessageId, c.lastSenderId,
+               c.lastMessagePreview, c.lastActivityAt, c.unreadCount)
+           from Conversation c join User u on u.id = c.peerId
+           where c.ownerId = :ownerId and c.lastMessageId < :before
+           order by c.lastMessageId desc
+           """)
+    List<ConversationDTO> findPageBefore(Long ownerId, Long before, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update Conversation c set c.unreadCount = 0 where c.ownerId = :ownerId and c.peerId = :peerId")
+    int markRead(Long ownerId, Long peerId);
+
+    // reconstrói o inbox a partir da última mensagem de cada conversa (não lidas começam em 0).
+    // "ignore": roda com o servidor já aceitando envios; a linha que um upsert ao vivo criou
+    // nesse meio tempo já tem a mensagem mais nova e fica como está
+    @Modifying
+    @Transactional
+    @Query(value = """
+           insert ignore into conversations (owner_id, peer_id, conversation_key, last_message_id, last_sender_id,
+                                      last_message_preview, last_activity_at, unread_count)
+           select m.sender_id, m.receiver_id, m.conversation_key, m.id, m.sender_id, left(m.content, 120), m.timestamp, 0
+           from message m
+           join (select max(id) id from message where conversation_key is not null group by conversation_key) t on t.id = m.id
+           union all
+           select m.receiver_id, m.sender_id, m.conversation_key, m.id, m.sender_id, left(m.content, 120), m.timestamp, 0
+           from message m
+           join (select max(id) id from message where conversation_key is not null group by conversation_key) t on t.id = m.id
+           """, nativeQuery = true)
+    int backfillFromMessages();
+}
@@ -1,9 +1,12 @@
 // Java
 package com.backend.echo.repository;
 
+import com.backend.echo.dto.FriendRequestDTO;
 import com.backend.echo.entity.FriendRequest;
 import com.backend.echo.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,4 +14,15 @@ import java.util.Optional;
 public interface FriendRequestRepository extends JpaRepository<FriendRequest, Long> {
     List<FriendRequest> findByReceiverAndStatus(User receiver, FriendRequest.Status status);
     Optional<FriendRequest> findByRequesterAndReceiver(User requester, User receiver);
-}
\ No newline at end of file
+
+    // o outro lado de cada pedido com o status dado, enviado ou recebido por userId
+    @Query("select case when r.requester.id = :userId then r.receiver.id else r.requester.id end " +
+           "from FriendRequest r where r.status = :status and (r.requester.id = :userId or r.receiver.id = :userId)")
+    List<Long> findCounterpartIds(Long userId, FriendRequest.Status status);
+
+    // pedidos recebidos com o status dado, por id, só com os dados públicos de quem pediu
+    @Query("select new com.backend.echo.dto.FriendRequestDTO(r.id, u.id, u.username, u.avatarUrl, r.createdAt) " +
+           "from FriendRequest r join r.requester u " +
+           "where r.receiver.id = :userId and r.status = :status and r.id > :after order by r.id")
+    List<FriendRequestDTO> findReceivedCardsAfter(Long userId, FriendRequest.Status status, Long after, Pageable page);
+}
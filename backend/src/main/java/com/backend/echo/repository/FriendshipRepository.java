@@ -1,8 +1,11 @@
 package com.backend.echo.repository;
 
+import com.backend.echo.dto.UserCardDTO;
 import com.backend.echo.entity.Friendship;
 import com.backend.echo.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,4 +18,22 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
     }
 
     List<Friendship> findByUser1OrUser2(User u1, User u2);
-}
\ No newline at end of file
+
+    // ids dos amigos do usuário, sem hidratar as entidades
+    @Query("""
+           select case when f.user1.id = :userId then f.user2.id else f.user1.id end
+           from Friendship f
+           where f.user1.id = :userId or f.user2.id = :userId
+           """)
+    List<Long> findFriendIds(Long userId);
+
+    // página de amigos por id, já como DTO: um único select, sem carregar Friendship nem User
+    @Query("""
+           select new com.backend.echo.dto.UserCardDTO(u.id, u.username, u.avatarUrl)
+           from Friendship f
+           join User u on u.id = case when f.user1.id = :userId then f.user2.id else f.user1.id end
+           where (f.user1.id = :userId or f.user2.id = :userId) and u.id > :after
+           order by u.id
+           """)
+    List<UserCardDTO> findFriendCardsAfter(Long userId, Long after, Pageable page);
+}
@@ -1,8 +1,12 @@
 package com.backend.echo.repository;
 
+import com.backend.echo.dto.MessageDTO;
 import com.backend.echo.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -17,4 +21,40 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
            order by m.timestamp asc
            """)
     List<Message> findConversation(Long a, Long b);
+
+    // página por cursor (id < before), mais recentes primeiro; usa idx_message_conversation
+    @Query("""
+           select new com.backend.echo.dto.MessageDTO(
+               m.id, m.sender.id, m.receiver.id, m.content, m.timestamp, m.mediaUrl, m.seq)
+           from Message m
+           where m.conversationKey = :conversationKey and m.id < :before
+           order by m.id desc
+           """)
+    List<MessageDTO> findPageBefore(String conversationKey, Long before, Pageable pageable);
+
+    // delta do sync (seq > afterSeq), em ordem; usa idx_message_conversation_seq
+    @Query("""
+           select new com.backend.echo.dto.MessageDTO(
+               m.id, m.sender.id, m.receiver.id, m.content, m.timestamp, m.mediaUrl, m.seq)
+           from Message m
+           where m.conversationKey = :conversationKey and m.seq > :afterSeq
+           order by m.seq asc
+           """)
+    List<MessageDTO> findPageAfterSeq(String conversationKey, Long afterSeq, Pageable pageable);
+
+    @Query("select coalesce(max(m.seq), 0) from Message m where m.conversationKey = :conversationKey")
+    long findLastSeq(String conversationKey);
+
+    @Query("select coalesce(max(m.id), 0) from Message m where m.conversationKey = :conversationKey")
+    long findMaxId(String conversationKey);
+
+    // preenche a chave das mensagens gravadas antes da coluna existir
+    @Modifying
+    @Transactional
+    @Query(value = """
+           update message
+           set conversation_key = concat(least(sender_id, receiver_id), '_', greatest(sender_id, receiver_id))
+           where conversation_key is null and sender_id is not null and receiver_id is not null
+           """, nativeQuery = true)
+    int backfillConversationKeys();
 }
\ No newline at end of file
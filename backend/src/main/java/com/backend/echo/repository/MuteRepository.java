@@ -4,6 +4,7 @@ package com.backend.echo.repository;
 import com.backend.echo.entity.Mute;
 import com.backend.echo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,4 +12,7 @@ import java.util.Optional;
 public interface MuteRepository extends JpaRepository<Mute, Long> {
     Optional<Mute> findByOwnerAndTarget(User owner, User target);
     List<Mute> findByOwnerAndMutedIsTrue(User owner);
-}
\ No newline at end of file
+
+    @Query("select m.target.id from Mute m where m.owner.id = :userId and m.muted = true")
+    List<Long> findMutedIds(Long userId);
+}
@@ -0,0 +1,16 @@
+package com.backend.echo.repository;
+
+import com.backend.echo.entity.OutboundMail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboundMailRepository extends JpaRepository<OutboundMail, Long> {
+
+    List<OutboundMail> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(OutboundMail.Status status,
+                                                                            LocalDateTime now, Pageable page);
+
+    List<OutboundMail> findByStatusOrderByIdDesc(OutboundMail.Status status, Pageable page);
+}
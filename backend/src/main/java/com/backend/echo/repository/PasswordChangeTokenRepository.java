@@ -4,8 +4,11 @@ import com.backend.echo.security.PasswordChangeToken;
 import com.backend.echo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface PasswordChangeTokenRepository extends JpaRepository<PasswordChangeToken, Long> {
     Optional<PasswordChangeToken> findTopByUserAndUsedIsFalseOrderByCreatedAtDesc(User user);
+
+    void deleteByUserOrExpiresAtBefore(User user, LocalDateTime now);
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.backend.echo.repository;
 
 import com.backend.echo.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -10,4 +13,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
+
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Integer> findTokenVersion(Long id);
+
+    // diretório paginado por id (cursor), sem o próprio usuário
+    List<User> findByIdGreaterThanAndIdNotOrderByIdAsc(Long after, Long exclude, Pageable page);
+
+    // carga do índice de busca: id, username, avatarUrl
+    @Query("select u.id, u.username, u.avatarUrl from User u where u.id > :after order by u.id")
+    List<Object[]> findSearchRowsAfter(Long after, Pageable page);
+
+    // carga do filtro de disponibilidade: id, username, email
+    @Query("select u.id, u.username, u.email from User u where u.id > :after order by u.id")
+    List<Object[]> findCredentialRowsAfter(Long after, Pageable page);
 }
\ No newline at end of file
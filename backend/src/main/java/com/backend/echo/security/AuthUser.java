@@ -0,0 +1,15 @@
+package com.backend.echo.security;
+
+import java.security.Principal;
+
+/**
+ * Principal montado só com as claims do JWT (sem ir ao banco).
+ * getName() continua sendo o username, que é o que o STOMP usa em /user/**.
+ */
+public record AuthUser(Long id, String username, Role role) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,16 @@
+package com.backend.echo.security;
+
+/** Fila de hash de senha cheia; vira 503 com Retry-After. */
+public class HashingBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public HashingBusyException(long retryAfterSeconds) {
+        super("Servidor ocupado, tente novamente.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,24 @@
+package com.backend.echo.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Responde direto (sem sendError) porque /auth/** é anônimo e o despacho para /error
+ * exigiria autenticação, trocando o 503 por 401.
+ */
+@RestControllerAdvice
+public class HashingBusyHandler {
+
+    @ExceptionHandler(HashingBusyException.class)
+    public ResponseEntity<Map<String, String>> busy(HashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+}
@@ -1,6 +1,8 @@
 package com.backend.echo.security;
 
+import com.backend.echo.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -18,6 +20,10 @@ import java.util.Date;
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_VERSION = "ver";
+
     @Value("${app.jwt.secret}")
     private String secret;
 
@@ -25,6 +31,7 @@ public class JwtUtil {
     private long jwtExpirationMs;
 
     private Key key;
+    private JwtParser parser; // imutável e thread-safe: montado uma vez
 
     @PostConstruct
     public void init() {
@@ -56,15 +63,19 @@ public class JwtUtil {
             }
 
             this.key = Keys.hmacShaKeyFor(keyBytes);
+            this.parser = Jwts.parserBuilder().setSigningKey(key).build();
         } else {
             throw new IllegalStateException("Propriedade 'app.jwt.secret' não encontrada.");
         }
     }
 
-    public String generateToken(String username) {
+    public String generateToken(User user) {
         Instant now = Instant.now();
         return Jwts.builder()
-                .setSubject(username)
+                .setSubject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .claim(CLAIM_VERSION, user.getTokenVersion())
                 .setIssuedAt(Date.from(now))
                 .setExpiration(Date.from(now.plusMillis(jwtExpirationMs)))
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -72,10 +83,6 @@ public class JwtUtil {
     }
 
     public Claims parseClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 }
@@ -32,4 +32,8 @@ public class PasswordChangeToken {
 
     @Column(nullable = false)
     private boolean used;
+
+    // tentativas erradas; ao chegar no limite o código é invalidado
+    @Column(nullable = false)
+    private int attempts;
 }
\ No newline at end of file
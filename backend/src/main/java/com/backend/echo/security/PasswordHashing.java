@@ -0,0 +1,137 @@
+package com.backend.echo.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt fora das threads do Tomcat: um pool fixo (por padrão, um thread por CPU) com fila
+ * limitada. Quem chama espera o resultado, mas só entram {@code threads + queue} pedidos ao
+ * mesmo tempo; o resto recebe {@link HashingBusyException} na hora, em vez de ocupar uma
+ * thread de requisição durante uma tempestade de logins.
+ */
+@Component
+public class PasswordHashing {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+    private final int cost;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public PasswordHashing(PasswordEncoder passwordEncoder,
+                           @Value("${app.security.hashing.threads:0}") int threads,
+                           @Value("${app.security.hashing.queue:50}") int queue,
+                           @Value("${app.security.bcrypt.cost:10}") int cost,
+                           MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.cost = cost;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("echo.auth.hash.latency").tag("op", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("echo.auth.hash.latency").tag("op", "matches").register(meterRegistry);
+        this.queueWait = Timer.builder("echo.auth.hash.queue_wait").register(meterRegistry);
+        this.rejected = Counter.builder("echo.auth.hash.rejected").register(meterRegistry);
+        Gauge.builder("echo.auth.hash.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    public String encode(String raw) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(raw)));
+    }
+
+    public boolean matches(String raw, String encoded) {
+        return submit(() -> matchesTimer.record(() -> passwordEncoder.matches(raw, encoded)));
+    }
+
+    /**
+     * Confere a senha e, se o hash guardado usa um custo diferente do configurado (maior ou
+     * menor), já devolve o hash novo na mesma tarefa. {@code rehash} é null quando não precisa
+     * trocar.
+     */
+    public Verification verify(String raw, String encoded) {
+        return submit(() -> {
+            boolean ok = matchesTimer.record(() -> passwordEncoder.matches(raw, encoded));
+            // o upgradeEncoding do BCryptPasswordEncoder só aponta custo menor: baixar o custo
+            // configurado não refaria nenhum hash
+            if (!ok || !costDiffers(encoded)) return new Verification(ok, null);
+            return new Verification(true, encodeTimer.record(() -> passwordEncoder.encode(raw)));
+        });
+    }
+
+    // $2a$10$...: o custo são os dois dígitos depois do prefixo; outro formato fica como está
+    private boolean costDiffers(String encoded) {
+        if (encoded == null || encoded.length() < 7 || encoded.charAt(0) != '$' || encoded.charAt(3) != '$'
+                || encoded.charAt(6) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encoded, 4, 6, 10) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public record Verification(boolean matches, String rehash) {}
+
+    private <T> T submit(Callable<T> work) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return work.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingBusyException(retryAfterSeconds());
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o hash da senha.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Falha ao calcular o hash da senha.", e.getCause());
+        }
+    }
+
+    // tempo estimado para a fila atual esvaziar, pela média dos hashes já feitos
+    private long retryAfterSeconds() {
+        double meanMs = Math.max(encodeTimer.mean(TimeUnit.MILLISECONDS), matchesTimer.mean(TimeUnit.MILLISECONDS));
+        if (meanMs <= 0) meanMs = 100;
+        double drainMs = (executor.getQueue().size() + threads) * meanMs / threads;
+        return Math.max(1, (long) Math.ceil(drainMs / 1000));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
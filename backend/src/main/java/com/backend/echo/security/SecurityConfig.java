@@ -2,6 +2,7 @@ package com.backend.echo.security;
 
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -27,8 +28,9 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.bcrypt.cost:10}") int cost) {
+        // hashes com outro custo (maior ou menor) continuam válidos e são refeitos no próximo login
+        return new BCryptPasswordEncoder(cost);
     }
 
     @Bean
@@ -52,6 +54,7 @@ public class SecurityConfig {
                         .requestMatchers("/ws/**").permitAll()
                         // permitir acesso público aos avatares/arquivos estáticos e assets (audio/images)
                         .requestMatchers("/media/**", "/assets/**", "/static/**", "/uploads/**").permitAll()
+                        .requestMatchers("/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 );
 
@@ -66,7 +69,7 @@ public class SecurityConfig {
         cfg.setAllowedOrigins(List.of("http://localhost:5182"));
         cfg.setAllowedMethods(List.of("GET","POST","PUT","PATCH","DELETE","OPTIONS"));
         cfg.setAllowedHeaders(List.of("*"));
-        cfg.setExposedHeaders(List.of("Authorization"));
+        cfg.setExposedHeaders(List.of("Authorization", "Retry-After"));
         cfg.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
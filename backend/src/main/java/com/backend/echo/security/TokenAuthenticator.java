@@ -0,0 +1,36 @@
+package com.backend.echo.security;
+
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/** Converte um JWT em Authentication usando só as claims; usado no filtro HTTP e no CONNECT do STOMP. */
+@Component
+@RequiredArgsConstructor
+public class TokenAuthenticator {
+
+    private final JwtUtil jwtUtil;
+    private final TokenVersions tokenVersions;
+
+    /** Lança exceção se o token for inválido, expirado ou de uma versão antiga. */
+    public UsernamePasswordAuthenticationToken authenticate(String token) {
+        Claims claims = jwtUtil.parseClaims(token);
+        Number uid = claims.get(JwtUtil.CLAIM_USER_ID, Number.class);
+        String role = claims.get(JwtUtil.CLAIM_ROLE, String.class);
+        Number ver = claims.get(JwtUtil.CLAIM_VERSION, Number.class);
+        if (uid == null || role == null || ver == null) {
+            throw new IllegalArgumentException("Token sem as claims do usuário.");
+        }
+        if (!tokenVersions.isCurrent(uid.longValue(), ver.intValue())) {
+            throw new IllegalArgumentException("Token revogado.");
+        }
+
+        AuthUser user = new AuthUser(uid.longValue(), claims.getSubject(), Role.valueOf(role));
+        return new UsernamePasswordAuthenticationToken(user, null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + user.role().name())));
+    }
+}
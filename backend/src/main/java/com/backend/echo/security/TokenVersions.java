@@ -0,0 +1,70 @@
+package com.backend.echo.security;
+
+import com.backend.echo.entity.User;
+import com.backend.echo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versão atual dos tokens de cada usuário. O token carrega a versão da emissão; quando
+ * algo que está nas claims muda (ex.: username), a versão sobe e os tokens antigos deixam
+ * de valer. Cache em memória por nó, relido do banco depois de {@code app.security.token-version-ttl-ms}
+ * (uma troca feita em outro nó passa a valer aqui dentro desse prazo) ou na hora, quando
+ * chega um token mais novo que o cache (emitido por outro nó depois da troca).
+ */
+@Component
+public class TokenVersions {
+
+    private static final int MISSING = -1;
+
+    private final UserRepository userRepository;
+    private final long ttlMs;
+    private final ConcurrentHashMap<Long, Cached> versions = new ConcurrentHashMap<>();
+
+    public TokenVersions(UserRepository userRepository,
+                         @Value("${app.security.token-version-ttl-ms:30000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    private record Cached(int version, long loadedAt) {}
+
+    public boolean isCurrent(Long userId, int version) {
+        long now = System.currentTimeMillis();
+        Cached cached = versions.get(userId);
+        if (cached == null || now - cached.loadedAt() >= ttlMs || version > cached.version()) {
+            cached = remember(userId, new Cached(userRepository.findTokenVersion(userId).orElse(MISSING), now));
+        }
+        return cached.version() != MISSING && cached.version() == version;
+    }
+
+    /**
+     * Invalida os tokens já emitidos. Precisa ser chamado dentro da transação que salva o
+     * usuário: o cache só passa para a versão nova depois do commit, então uma falha ao salvar
+     * não deixa o nó recusando todos os tokens do usuário.
+     */
+    public void bump(User user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("TokenVersions.bump fora de uma transação");
+        }
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        Long userId = user.getId();
+        int version = user.getTokenVersion();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(userId, new Cached(version, System.currentTimeMillis()));
+            }
+        });
+    }
+
+    // a versão no banco só cresce: uma leitura que começou antes do commit não volta o cache
+    private Cached remember(Long userId, Cached fresh) {
+        return versions.merge(userId, fresh, (old, f) ->
+                f.version() == MISSING || f.version() >= old.version() ? f : new Cached(old.version(), f.loadedAt()));
+    }
+}
@@ -5,7 +5,7 @@ import com.backend.echo.dto.ChatMessageDto;
 import com.backend.echo.dto.MessageDTO;
 
 public interface ChatService {
-    MessageDTO processIncoming(String conversationId, ChatMessageDto dto, String currentUsername);
+    MessageDTO processIncoming(String conversationId, ChatMessageDto dto, Long senderId);
     String conversationTopic(Long userA, Long userB); // retorna /topic/chat/{min_max}
     void validateCanSend(Long senderId, Long receiverId);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.backend.echo.service;
+
+import com.backend.echo.dto.ConversationDTO;
+import com.backend.echo.dto.ConversationSyncDTO;
+import com.backend.echo.dto.MessagePageDTO;
+import com.backend.echo.dto.SyncRequestDTO;
+
+import java.util.List;
+
+public interface ConversationService {
+    List<ConversationDTO> inbox(Long before, int limit); // mais recentes primeiro
+    void markRead(Long peerId);
+    MessagePageDTO history(Long peerId, Long before, int limit);
+    // userId explícito: também atende o STOMP, fora do SecurityContext da requisição
+    List<ConversationSyncDTO> sync(Long userId, SyncRequestDTO request);
+}
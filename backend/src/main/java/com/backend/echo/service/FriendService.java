@@ -1,16 +1,17 @@
 package com.backend.echo.service;
 
+import com.backend.echo.dto.FriendPageDTO;
+import com.backend.echo.dto.FriendRequestPageDTO;
 import com.backend.echo.entity.Block;
 import com.backend.echo.entity.FriendRequest;
 import com.backend.echo.entity.Friendship;
-import com.backend.echo.entity.User;
 
 import java.util.List;
 import java.util.Set;
 
 public interface FriendService {
     FriendRequest createRequest(Long toUserId);
-    List<FriendRequest> pendingForCurrentUser();
+    FriendRequestPageDTO pendingForCurrentUser(Long after, int limit);
     Friendship accept(Long requestId);
     void decline(Long requestId);
 
@@ -22,6 +23,6 @@ public interface FriendService {
     Set<Long> myMutedIds();
 
     // novos
-    List<User> myFriends();
+    FriendPageDTO myFriends(Long after, int limit);
     void unfriend(Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.backend.echo.service;
+
+import java.util.List;
+
+public interface SuggestionService {
+
+    record Suggestion(long id, String username, String avatarUrl, int mutualFriends) {}
+
+    // amigos de amigos que ainda não são amigos, por número de amigos em comum
+    List<Suggestion> suggestionsFor(long userId, int limit);
+
+    // a relação entre a e b mudou (amizade, pedido, bloqueio)
+    void relationChanged(long a, long b);
+}
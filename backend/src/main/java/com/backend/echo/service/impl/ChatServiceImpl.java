@@ -1,15 +1,18 @@
 // Java
 package com.backend.echo.service.impl;
 
+import com.backend.echo.cache.RecentMessagesCache;
+import com.backend.echo.cache.SocialGraphCache;
 import com.backend.echo.dto.ChatMessageDto;
 import com.backend.echo.dto.MessageDTO;
 import com.backend.echo.entity.Message;
 import com.backend.echo.entity.User;
-import com.backend.echo.repository.BlockRepository;
-import com.backend.echo.repository.FriendshipRepository;
-import com.backend.echo.repository.MessageRepository;
+import com.backend.echo.persistence.ConversationSequences;
+import com.backend.echo.persistence.MessageIdGenerator;
+import com.backend.echo.persistence.MessageStore;
 import com.backend.echo.repository.UserRepository;
 import com.backend.echo.service.ChatService;
+import com.backend.echo.util.ConversationKeys;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -19,59 +22,66 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class ChatServiceImpl implements ChatService {
 
-    private final FriendshipRepository friendshipRepository;
-    private final BlockRepository blockRepository;
+    private final SocialGraphCache socialGraph;
     private final UserRepository userRepository;
-    private final MessageRepository messageRepository;
+    private final MessageStore messageStore;
+    private final MessageIdGenerator messageIdGenerator;
+    private final ConversationSequences sequences;
+    private final RecentMessagesCache recentMessages;
 
     @Override
-    public MessageDTO processIncoming(String conversationId, ChatMessageDto dto, String currentUsername) {
-        User sender = userRepository.findByUsername(currentUsername).orElseThrow();
-        User receiver = userRepository.findById(dto.getReceiverId())
-                .orElseThrow(() -> new IllegalArgumentException("Destinatário não encontrado."));
-
-        validateCanSend(sender.getId(), receiver.getId());
+    public MessageDTO processIncoming(String conversationId, ChatMessageDto dto, Long senderId) {
+        if (dto.getReceiverId() == null) throw new IllegalArgumentException("Destinatário não encontrado.");
+        // amizade implica que o destinatário existe: referências bastam, sem SELECT nos usuários
+        validateCanSend(senderId, dto.getReceiverId());
+        User sender = userRepository.getReferenceById(senderId);
+        User receiver = userRepository.getReferenceById(dto.getReceiverId());
 
+        String conversationKey = ConversationKeys.of(senderId, dto.getReceiverId());
         Message toSave = Message.builder()
+                .id(messageIdGenerator.nextId())
                 .sender(sender)
                 .receiver(receiver)
+                .conversationKey(conversationKey)
+                .seq(sequences.next(conversationKey))
                 .content(dto.getContent())
                 .mediaUrl(dto.getMediaUrl())
                 .timestamp(dto.getTimestamp() != null ? dto.getTimestamp() : LocalDateTime.now())
                 .build();
 
-        Message saved = messageRepository.save(toSave);
-
-        return MessageDTO.builder()
-                .id(saved.getId())
-                .senderId(sender.getId())
-                .receiverId(receiver.getId())
-                .content(saved.getContent())
-                .mediaUrl(saved.getMediaUrl())
-                .timestamp(saved.getTimestamp())
+        MessageDTO saved = MessageDTO.builder()
+                .id(toSave.getId())
+                .senderId(senderId)
+                .receiverId(dto.getReceiverId())
+                .content(toSave.getContent())
+                .mediaUrl(toSave.getMediaUrl())
+                .timestamp(toSave.getTimestamp())
+                .seq(toSave.getSeq())
                 .build();
+        try {
+            messageStore.store(toSave);
+            recentMessages.append(conversationKey, saved);
+        } finally {
+            // só depois do cache: o sync lê dele as seqs até ConversationSequences.durable
+            sequences.done(conversationKey, toSave.getSeq());
+        }
+        return saved;
     }
 
     @Override
     public String conversationTopic(Long userA, Long userB) {
-        long min = Math.min(userA, userB);
-        long max = Math.max(userA, userB);
-        return "/topic/chat/" + min + "_" + max;
+        return "/topic/chat/" + ConversationKeys.of(userA, userB);
     }
 
     @Override
     public void validateCanSend(Long senderId, Long receiverId) {
-        User sender = userRepository.findById(senderId).orElseThrow();
-        User receiver = userRepository.findById(receiverId).orElseThrow();
-
         // bloqueio em qualquer direção
-        if (blockRepository.existsByBlockerAndBlocked(sender, receiver)
-                || blockRepository.existsByBlockerAndBlocked(receiver, sender)) {
+        if (socialGraph.isBlockedEitherWay(senderId, receiverId)) {
             throw new SecurityException("Envio bloqueado.");
         }
 
         // deve haver amizade
-        if (!friendshipRepository.existsBetween(sender, receiver)) {
+        if (!socialGraph.areFriends(senderId, receiverId)) {
             throw new SecurityException("Usuários não são amigos.");
         }
     }
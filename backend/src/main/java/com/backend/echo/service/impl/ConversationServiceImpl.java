@@ -0,0 +1,101 @@
+package com.backend.echo.service.impl;
+
+import com.backend.echo.cache.RecentMessagesCache;
+import com.backend.echo.dto.ConversationDTO;
+import com.backend.echo.dto.ConversationSyncDTO;
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.dto.MessagePageDTO;
+import com.backend.echo.dto.SyncRequestDTO;
+import com.backend.echo.persistence.ConversationSequences;
+import com.backend.echo.persistence.MessageStore;
+import com.backend.echo.repository.ConversationRepository;
+import com.backend.echo.service.ConversationService;
+import com.backend.echo.util.ConversationKeys;
+import com.backend.echo.util.SecurityUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class ConversationServiceImpl implements ConversationService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SYNC_CONVERSATIONS = 200;
+
+    private final MessageStore messageStore;
+    private final ConversationRepository conversationRepository;
+    private final RecentMessagesCache recentMessages;
+    private final ConversationSequences sequences;
+
+    @Override
+    public List<ConversationDTO> inbox(Long before, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long cursor = before != null ? before : Long.MAX_VALUE;
+        return conversationRepository.findPageBefore(SecurityUtils.currentUserId(), cursor, PageRequest.of(0, size));
+    }
+
+    @Override
+    public void markRead(Long peerId) {
+        conversationRepository.markRead(SecurityUtils.currentUserId(), peerId);
+    }
+
+    @Override
+    public MessagePageDTO history(Long peerId, Long before, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String key = ConversationKeys.of(SecurityUtils.currentUserId(), peerId);
+        long cursor = before != null ? before : Long.MAX_VALUE;
+
+        MessagePageDTO cached = recentMessages.page(key, cursor, size);
+        if (cached != null) return cached;
+
+        // busca um a mais para saber se existe próxima página
+        List<MessageDTO> rows = messageStore.pageBefore(key, cursor, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<MessageDTO> page = hasMore ? rows.subList(0, size) : rows;
+
+        // só a primeira página é contígua com o que o cache já tem (as mensagens mais novas)
+        if (before == null) recentMessages.mergeLatest(key, page, !hasMore);
+
+        return MessagePageDTO.builder()
+                .messages(page)
+                .nextBefore(hasMore ? page.get(page.size() - 1).getId() : null)
+                .build();
+    }
+
+    @Override
+    public List<ConversationSyncDTO> sync(Long userId, SyncRequestDTO request) {
+        Map<Long, Long> cursors = request != null ? request.getConversations() : null;
+        if (cursors == null || cursors.isEmpty()) return List.of();
+        if (cursors.size() > MAX_SYNC_CONVERSATIONS) {
+            throw new IllegalArgumentException("Máximo de " + MAX_SYNC_CONVERSATIONS + " conversas por sync.");
+        }
+        int size = request.getLimit() != null ? Math.max(1, Math.min(request.getLimit(), MAX_PAGE_SIZE)) : MAX_PAGE_SIZE;
+
+        List<ConversationSyncDTO> out = new ArrayList<>();
+        cursors.forEach((peerId, afterSeq) -> {
+            // a chave inclui o próprio usuário: só conversas dele
+            String key = ConversationKeys.of(userId, peerId);
+            long cursor = afterSeq != null ? Math.max(0, afterSeq) : 0;
+
+            // só até a última seq sem envio em andamento abaixo dela: entregar N+1 antes de N
+            // faria o cliente avançar o cursor por cima de N
+            long durable = sequences.durable(key);
+            if (cursor >= durable) return;
+            List<MessageDTO> rows = recentMessages.afterSeq(key, cursor, durable, size + 1);
+            if (rows == null) {
+                rows = messageStore.pageAfterSeq(key, cursor, size + 1).stream()
+                        .takeWhile(m -> m.getSeq() != null && m.getSeq() <= durable)
+                        .toList();
+            }
+            if (rows.isEmpty()) return;
+            boolean hasMore = rows.size() > size;
+            out.add(new ConversationSyncDTO(peerId, hasMore ? rows.subList(0, size) : rows, hasMore));
+        });
+        return out;
+    }
+}
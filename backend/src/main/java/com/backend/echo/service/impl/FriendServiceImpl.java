@@ -1,10 +1,17 @@
 package com.backend.echo.service.impl;
 
+import com.backend.echo.cache.SocialGraphCache;
+import com.backend.echo.dto.FriendPageDTO;
+import com.backend.echo.dto.FriendRequestDTO;
+import com.backend.echo.dto.FriendRequestPageDTO;
+import com.backend.echo.dto.UserCardDTO;
 import com.backend.echo.entity.*;
 import com.backend.echo.repository.*;
 import com.backend.echo.service.FriendService;
+import com.backend.echo.service.SuggestionService;
 import com.backend.echo.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -20,11 +27,11 @@ public class FriendServiceImpl implements FriendService {
     private final FriendshipRepository friendshipRepository;
     private final BlockRepository blockRepository;
     private final MuteRepository muteRepository;
+    private final SocialGraphCache socialGraph;
+    private final SuggestionService suggestions;
 
     private User me() {
-        String username = SecurityUtils.currentUsername();
-        if (username == null) throw new IllegalStateException("Não autenticado.");
-        return userRepository.findByUsername(username).orElseThrow();
+        return userRepository.findById(SecurityUtils.currentUserId()).orElseThrow();
     }
 
     @Override
@@ -56,12 +63,18 @@ public class FriendServiceImpl implements FriendService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        return friendRequestRepository.save(fr);
+        FriendRequest saved = friendRequestRepository.save(fr);
+        suggestions.relationChanged(requester.getId(), receiver.getId()); // pedido pendente sai das sugestões
+        return saved;
     }
 
     @Override
-    public List<FriendRequest> pendingForCurrentUser() {
-        return friendRequestRepository.findByReceiverAndStatus(me(), FriendRequest.Status.PENDING);
+    public FriendRequestPageDTO pendingForCurrentUser(Long after, int limit) {
+        List<FriendRequestDTO> page = friendRequestRepository.findReceivedCardsAfter(
+                SecurityUtils.currentUserId(), FriendRequest.Status.PENDING,
+                after != null ? after : 0L, PageRequest.of(0, limit));
+        Long nextAfter = page.size() == limit ? page.get(page.size() - 1).getId() : null;
+        return new FriendRequestPageDTO(page, nextAfter);
     }
 
     @Override
@@ -80,8 +93,12 @@ public class FriendServiceImpl implements FriendService {
 
         // Cria amizade se não existir
         if (!friendshipRepository.existsBetween(a, b)) {
-            return friendshipRepository.save(Friendship.builder().user1(a).user2(b).build());
+            Friendship saved = friendshipRepository.save(Friendship.builder().user1(a).user2(b).build());
+            socialGraph.friendshipAdded(a.getId(), b.getId());
+            suggestions.relationChanged(a.getId(), b.getId());
+            return saved;
         }
+        suggestions.relationChanged(a.getId(), b.getId());
         return friendshipRepository.findByUser1AndUser2(a, b)
                 .orElseGet(() -> friendshipRepository.findByUser1AndUser2(b, a).orElseThrow());
     }
@@ -95,6 +112,7 @@ public class FriendServiceImpl implements FriendService {
         }
         fr.setStatus(FriendRequest.Status.DECLINED);
         friendRequestRepository.save(fr);
+        suggestions.relationChanged(fr.getRequester().getId(), current.getId());
     }
 
     @Override
@@ -115,7 +133,10 @@ public class FriendServiceImpl implements FriendService {
                     .orElseThrow();
         }
 
-        return blockRepository.save(Block.builder().blocker(current).blocked(target).build());
+        Block saved = blockRepository.save(Block.builder().blocker(current).blocked(target).build());
+        socialGraph.blockAdded(current.getId(), target.getId());
+        suggestions.relationChanged(current.getId(), target.getId());
+        return saved;
     }
 
     @Override
@@ -124,7 +145,11 @@ public class FriendServiceImpl implements FriendService {
         blockRepository.findByBlocker(current).stream()
                 .filter(b -> Objects.equals(b.getBlocked().getId(), userId))
                 .findFirst()
-                .ifPresent(blockRepository::delete);
+                .ifPresent(b -> {
+                    blockRepository.delete(b);
+                    socialGraph.blockRemoved(current.getId(), userId);
+                    suggestions.relationChanged(current.getId(), userId);
+                });
     }
 
     @Override
@@ -139,22 +164,22 @@ public class FriendServiceImpl implements FriendService {
         muteRepository.findByOwnerAndTarget(current, target)
                 .ifPresentOrElse(m -> { m.setMuted(muted); muteRepository.save(m); },
                         () -> muteRepository.save(Mute.builder().owner(current).target(target).muted(muted).build()));
+        socialGraph.muteChanged(current.getId(), target.getId(), muted);
     }
 
     @Override
     public Set<Long> myMutedIds() {
-        return muteRepository.findByOwnerAndMutedIsTrue(me()).stream()
-                .map(m -> m.getTarget().getId())
+        return Arrays.stream(socialGraph.mutedBy(SecurityUtils.currentUserId()))
+                .boxed()
                 .collect(Collectors.toSet());
     }
 
     @Override
-    public List<User> myFriends() {
-        User current = me();
-        return friendshipRepository.findByUser1OrUser2(current, current).stream()
-                .map(fs -> Objects.equals(fs.getUser1().getId(), current.getId()) ? fs.getUser2() : fs.getUser1())
-                .distinct()
-                .toList();
+    public FriendPageDTO myFriends(Long after, int limit) {
+        List<UserCardDTO> page = friendshipRepository.findFriendCardsAfter(
+                SecurityUtils.currentUserId(), after != null ? after : 0L, PageRequest.of(0, limit));
+        Long nextAfter = page.size() == limit ? page.get(page.size() - 1).getId() : null;
+        return new FriendPageDTO(page, nextAfter);
     }
 
     @Override
@@ -166,5 +191,7 @@ public class FriendServiceImpl implements FriendService {
                 .ifPresent(friendshipRepository::delete);
         friendshipRepository.findByUser1AndUser2(other, current)
                 .ifPresent(friendshipRepository::delete);
+        socialGraph.friendshipRemoved(current.getId(), other.getId());
+        suggestions.relationChanged(current.getId(), other.getId());
     }
 }
@@ -0,0 +1,102 @@
+package com.backend.echo.service.impl;
+
+import com.backend.echo.entity.User;
+import com.backend.echo.service.VerificationService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Códigos num mapa em memória: um por usuário, com validade e limite de tentativas.
+ * Conferir é um HMAC e um lookup; nada vai ao banco. Um varredor periódico remove os
+ * vencidos que ninguém tentou usar. Só serve para um nó: com mais de um, usar
+ * {@code app.verification.store=jpa}.
+ */
+@Service
+@ConditionalOnProperty(name = "app.verification.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryVerificationService implements VerificationService {
+
+    private final VerificationCodes codes;
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "verification-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public InMemoryVerificationService(VerificationCodes codes,
+                                       @Value("${app.verification.sweep-ms:60000}") long sweepMs,
+                                       MeterRegistry meterRegistry) {
+        this.codes = codes;
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("echo.verification.pending", pending, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    @Override
+    public void sendPasswordChangeCode(User user) {
+        String code = codes.generate();
+        // substitui o anterior: só o código mais novo vale
+        pending.put(user.getId(), new Pending(codes.hash(user.getId(), code),
+                System.currentTimeMillis() + codes.ttl().toMillis(), 0));
+        codes.send(user, code);
+    }
+
+    @Override
+    public void verifyPasswordChangeCode(User user, String code) {
+        check(user, code, false);
+        // Não consome aqui; apenas valida. O consumo acontece na alteração de senha.
+    }
+
+    @Override
+    public void consumePasswordChangeCode(User user, String code) {
+        check(user, code, true);
+    }
+
+    private void check(User user, String code, boolean consume) {
+        Outcome[] outcome = {Outcome.MISSING};
+        // compute serializa as tentativas do mesmo usuário
+        pending.computeIfPresent(user.getId(), (id, p) -> {
+            if (p.expiresAt() < System.currentTimeMillis()) {
+                outcome[0] = Outcome.EXPIRED;
+                return null;
+            }
+            if (!codes.matches(id, code, p.hash())) {
+                int attempts = p.attempts() + 1;
+                outcome[0] = attempts >= codes.maxAttempts() ? Outcome.LOCKED : Outcome.INVALID;
+                return outcome[0] == Outcome.LOCKED ? null : new Pending(p.hash(), p.expiresAt(), attempts);
+            }
+            outcome[0] = Outcome.OK;
+            return consume ? null : p;
+        });
+
+        switch (outcome[0]) {
+            case OK -> { }
+            case MISSING -> throw new IllegalArgumentException("Nenhum código encontrado.");
+            case EXPIRED -> throw new IllegalArgumentException("Código expirado.");
+            case LOCKED -> throw new IllegalArgumentException("Muitas tentativas. Solicite um novo código.");
+            case INVALID -> throw new IllegalArgumentException("Código inválido.");
+        }
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        pending.values().removeIf(p -> p.expiresAt() < now);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private enum Outcome { OK, MISSING, EXPIRED, INVALID, LOCKED }
+
+    private record Pending(byte[] hash, long expiresAt, int attempts) {}
+}
@@ -0,0 +1,77 @@
+package com.backend.echo.service.impl;
+
+import com.backend.echo.security.PasswordChangeToken;
+import com.backend.echo.entity.User;
+import com.backend.echo.repository.PasswordChangeTokenRepository;
+import com.backend.echo.service.VerificationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Códigos na tabela password_change_tokens. Para vários nós atrás de um balanceador,
+ * onde o código pedido num nó pode ser conferido em outro.
+ */
+@Service
+@ConditionalOnProperty(name = "app.verification.store", havingValue = "jpa")
+@RequiredArgsConstructor
+public class JpaVerificationService implements VerificationService {
+
+    private final PasswordChangeTokenRepository tokenRepository;
+    private final VerificationCodes codes;
+
+    @Override
+    @Transactional
+    public void sendPasswordChangeCode(User user) {
+        // só o código mais novo vale; apaga os anteriores do usuário e os vencidos de todos
+        LocalDateTime now = LocalDateTime.now();
+        tokenRepository.deleteByUserOrExpiresAtBefore(user, now);
+
+        String code = codes.generate();
+        PasswordChangeToken token = PasswordChangeToken.builder()
+                .user(user)
+                .codeHash(codes.hashHex(user.getId(), code))
+                .createdAt(now)
+                .expiresAt(now.plus(codes.ttl()))
+                .used(false)
+                .build();
+        tokenRepository.save(token);
+
+        codes.send(user, code);
+    }
+
+    @Override
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public void verifyPasswordChangeCode(User user, String code) {
+        check(user, code);
+        // Não consome aqui; apenas valida. O consumo acontece na alteração de senha.
+    }
+
+    @Override
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public void consumePasswordChangeCode(User user, String code) {
+        tokenRepository.delete(check(user, code));
+    }
+
+    private PasswordChangeToken check(User user, String code) {
+        PasswordChangeToken token = tokenRepository.findTopByUserAndUsedIsFalseOrderByCreatedAtDesc(user)
+                .orElseThrow(() -> new IllegalArgumentException("Nenhum código encontrado."));
+        if (token.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Código expirado.");
+        }
+        if (!codes.matchesHex(user.getId(), code, token.getCodeHash())) {
+            token.setAttempts(token.getAttempts() + 1);
+            if (token.getAttempts() >= codes.maxAttempts()) {
+                token.setUsed(true);
+                tokenRepository.save(token);
+                throw new IllegalArgumentException("Muitas tentativas. Solicite um novo código.");
+            }
+            tokenRepository.save(token);
+            throw new IllegalArgumentException("Código inválido.");
+        }
+        return token;
+    }
+}
@@ -1,22 +1,47 @@
 package com.backend.echo.service.impl;
 
+import com.backend.echo.entity.OutboundMail;
+import com.backend.echo.mail.MailDispatcher;
+import com.backend.echo.repository.OutboundMailRepository;
 import com.backend.echo.service.MailService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+
+/**
+ * Não fala com o SMTP: grava o email na mail_outbox, na mesma transação de quem chamou,
+ * e o MailDispatcher envia em segundo plano. Se a transação voltar, o email não sai.
+ */
 @Service
 @RequiredArgsConstructor
 public class MailServiceImpl implements MailService {
-    private final JavaMailSender mailSender;
+    private final OutboundMailRepository outbox;
+    private final MailDispatcher dispatcher;
 
     @Override
+    @Transactional
     public void sendEmail(String to, String subject, String body) {
-        SimpleMailMessage msg = new SimpleMailMessage();
-        msg.setTo(to);
-        msg.setSubject(subject);
-        msg.setText(body);
-        mailSender.send(msg);
+        LocalDateTime now = LocalDateTime.now();
+        outbox.save(OutboundMail.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(body)
+                .status(OutboundMail.Status.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+
+        // acorda o dispatcher só depois do commit, senão ele pode não ver a linha
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wake();
+            }
+        });
     }
-}
\ No newline at end of file
+}
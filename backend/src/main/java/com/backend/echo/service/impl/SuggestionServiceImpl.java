@@ -0,0 +1,225 @@
+package com.backend.echo.service.impl;
+
+import com.backend.echo.cache.SocialGraphCache;
+import com.backend.echo.cache.UserSearchIndex;
+import com.backend.echo.entity.FriendRequest;
+import com.backend.echo.entity.User;
+import com.backend.echo.repository.FriendRequestRepository;
+import com.backend.echo.repository.UserRepository;
+import com.backend.echo.service.SuggestionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sugestões de amizade calculadas sobre as listas de adjacência do SocialGraphCache,
+ * sem self-join no banco: junta os amigos de cada amigo, ordena e conta as repetições
+ * (repetições = amigos em comum). Com muitos amigos a coleta é dividida num ForkJoinPool
+ * próprio, porque uma lista ainda não carregada vai ao banco e não deve prender o pool comum.
+ *
+ * O topo de cada usuário fica em cache até uma mudança de relação que o afete
+ * ({@link #relationChanged}) ou até o TTL, que cobre mudanças feitas em outro nó.
+ */
+@Service
+public class SuggestionServiceImpl implements SuggestionService {
+
+    private static final int MAX_KEPT = 50; // guardado no cache; limit maior é cortado nisso
+
+    // maior número de amigos em comum primeiro; empate pelo id, para a ordem ser estável
+    private static final Comparator<Scored> RANKING =
+            Comparator.comparingInt(Scored::mutual).reversed().thenComparingLong(Scored::id);
+
+    private final SocialGraphCache socialGraph;
+    private final FriendRequestRepository friendRequestRepository;
+    private final UserRepository userRepository;
+    private final UserSearchIndex searchIndex;
+    private final ForkJoinPool pool;
+    private final int forkThreshold;
+    private final long ttlMs;
+
+    private final ConcurrentHashMap<Long, Cached> cache = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong(); // muda a cada invalidação
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer computeTimer;
+
+    public SuggestionServiceImpl(SocialGraphCache socialGraph,
+                                 FriendRequestRepository friendRequestRepository,
+                                 UserRepository userRepository,
+                                 UserSearchIndex searchIndex,
+                                 @Value("${app.suggestions.parallelism:0}") int parallelism,
+                                 @Value("${app.suggestions.fork-threshold:32}") int forkThreshold,
+                                 @Value("${app.suggestions.cache-ttl-ms:300000}") long ttlMs,
+                                 MeterRegistry meterRegistry) {
+        this.socialGraph = socialGraph;
+        this.friendRequestRepository = friendRequestRepository;
+        this.userRepository = userRepository;
+        this.searchIndex = searchIndex;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.forkThreshold = Math.max(1, forkThreshold);
+        this.ttlMs = ttlMs;
+
+        this.hits = Counter.builder("echo.suggestions.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("echo.suggestions.requests").tag("result", "miss").register(meterRegistry);
+        this.computeTimer = Timer.builder("echo.suggestions.compute").register(meterRegistry);
+        Gauge.builder("echo.suggestions.cached", cache, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    private record Scored(long id, int mutual) {}
+
+    private record Cached(List<Scored> top, long expiresAt) {}
+
+    @Override
+    public List<Suggestion> suggestionsFor(long userId, int limit) {
+        if (limit <= 0) return List.of();
+        List<Scored> top = top(userId);
+        return hydrate(top.subList(0, Math.min(limit, top.size())));
+    }
+
+    private List<Scored> top(long userId) {
+        Cached cached = cache.get(userId);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            hits.increment();
+            return cached.top();
+        }
+        misses.increment();
+
+        long before = epoch.get();
+        List<Scored> top = computeTimer.record(() -> compute(userId));
+        Cached entry = new Cached(top, System.currentTimeMillis() + ttlMs);
+        cache.put(userId, entry);
+        // uma invalidação durante o cálculo pode ter chegado antes do put: descarta o que gravamos
+        if (epoch.get() != before) cache.remove(userId, entry);
+        return top;
+    }
+
+    private List<Scored> compute(long userId) {
+        long[] friends = socialGraph.friendsView(userId);
+        if (friends.length == 0) return List.of();
+
+        Gather gather = new Gather(userId, friends, 0, friends.length);
+        long[] candidates = friends.length > forkThreshold ? pool.invoke(gather) : gather.compute();
+        if (candidates.length == 0) return List.of();
+        Arrays.sort(candidates);
+
+        Set<Long> pending = new HashSet<>(
+                friendRequestRepository.findCounterpartIds(userId, FriendRequest.Status.PENDING));
+
+        // heap com o pior do topo na cabeça
+        PriorityQueue<Scored> heap = new PriorityQueue<>(MAX_KEPT + 1, RANKING.reversed());
+        for (int i = 0; i < candidates.length; ) {
+            long id = candidates[i];
+            int j = i;
+            while (j < candidates.length && candidates[j] == id) j++;
+            int mutual = j - i;
+            i = j;
+
+            // ids vêm em ordem crescente: empate com o pior do topo perde pelo id
+            if (heap.size() == MAX_KEPT && mutual <= heap.peek().mutual()) continue;
+            if (pending.contains(id) || socialGraph.isBlockedEitherWay(userId, id)) continue;
+            heap.add(new Scored(id, mutual));
+            if (heap.size() > MAX_KEPT) heap.poll();
+        }
+
+        List<Scored> top = new ArrayList<>(heap);
+        top.sort(RANKING);
+        return List.copyOf(top);
+    }
+
+    private List<Suggestion> hydrate(List<Scored> top) {
+        Map<Long, UserSearchIndex.Card> cards = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Scored s : top) {
+            UserSearchIndex.Card c = searchIndex.card(s.id());
+            if (c != null) cards.put(s.id(), c);
+            else missing.add(s.id());
+        }
+        // índice ainda carregando: completa pelo banco
+        if (!missing.isEmpty()) {
+            for (User u : userRepository.findAllById(missing)) {
+                cards.put(u.getId(), new UserSearchIndex.Card(u.getId(), u.getUsername(), u.getAvatarUrl()));
+            }
+        }
+
+        List<Suggestion> out = new ArrayList<>(top.size());
+        for (Scored s : top) {
+            UserSearchIndex.Card c = cards.get(s.id());
+            if (c != null) out.add(new Suggestion(s.id(), c.username(), c.avatarUrl(), s.mutual()));
+        }
+        return out;
+    }
+
+    @Override
+    public void relationChanged(long a, long b) {
+        // a e b, e quem é amigo de um deles: para esses, a ou b entra/sai dos amigos de amigos
+        epoch.incrementAndGet();
+        cache.remove(a);
+        cache.remove(b);
+        for (long f : socialGraph.friendsView(a)) cache.remove(f);
+        for (long f : socialGraph.friendsView(b)) cache.remove(f);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Amigos dos amigos em [lo, hi), sem o próprio usuário e sem quem já é amigo; com repetições. */
+    private final class Gather extends RecursiveTask<long[]> {
+        private final long userId;
+        private final long[] friends;
+        private final int lo;
+        private final int hi;
+
+        Gather(long userId, long[] friends, int lo, int hi) {
+            this.userId = userId;
+            this.friends = friends;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (hi - lo <= forkThreshold) return scan();
+            int mid = (lo + hi) >>> 1;
+            Gather left = new Gather(userId, friends, lo, mid);
+            left.fork();
+            long[] right = new Gather(userId, friends, mid, hi).compute();
+            long[] l = left.join();
+            long[] out = Arrays.copyOf(l, l.length + right.length);
+            System.arraycopy(right, 0, out, l.length, right.length);
+            return out;
+        }
+
+        private long[] scan() {
+            long[] buf = new long[64];
+            int n = 0;
+            for (int i = lo; i < hi; i++) {
+                for (long c : socialGraph.friendsView(friends[i])) {
+                    if (c == userId || Arrays.binarySearch(friends, c) >= 0) continue;
+                    if (n == buf.length) buf = Arrays.copyOf(buf, n * 2);
+                    buf[n++] = c;
+                }
+            }
+            return Arrays.copyOf(buf, n);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.backend.echo.service.impl;
+
+import com.backend.echo.entity.User;
+import com.backend.echo.service.MailService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Geração, hash e envio dos códigos de troca de senha, comum às duas implementações
+ * de VerificationService. O código tem só 6 dígitos: o que protege contra força bruta é
+ * o limite de tentativas, então um HMAC (microssegundos) basta no lugar do BCrypt.
+ * A chave vem da configuração para que vários nós usando a tabela concordem.
+ */
+@Component
+public class VerificationCodes {
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key;
+    private final MailService mailService;
+    private final Duration ttl;
+    private final int maxAttempts;
+
+    public VerificationCodes(@Value("${app.verification.secret:${app.jwt.secret}}") String secret,
+                             @Value("${app.verification.ttl-minutes:10}") long ttlMinutes,
+                             @Value("${app.verification.max-attempts:5}") int maxAttempts,
+                             MailService mailService) {
+        this.key = new SecretKeySpec(("verification:" + secret).getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.maxAttempts = maxAttempts;
+        this.mailService = mailService;
+    }
+
+    public Duration ttl() {
+        return ttl;
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    public String generate() {
+        return String.valueOf(100000 + random.nextInt(900000));
+    }
+
+    /** HMAC do código amarrado ao usuário: o mesmo código de outro usuário não confere. */
+    public byte[] hash(Long userId, String code) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal((userId + ":" + code).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponível", e);
+        }
+    }
+
+    public String hashHex(Long userId, String code) {
+        return HexFormat.of().formatHex(hash(userId, code));
+    }
+
+    public boolean matches(Long userId, String code, byte[] expected) {
+        if (code == null) return false;
+        return MessageDigest.isEqual(hash(userId, code.trim()), expected);
+    }
+
+    // linhas gravadas antes do HMAC guardam um hash BCrypt: não confere, como um código errado
+    public boolean matchesHex(Long userId, String code, String expectedHex) {
+        byte[] expected;
+        try {
+            expected = HexFormat.of().parseHex(expectedHex);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return false;
+        }
+        return matches(userId, code, expected);
+    }
+
+    public void send(User user, String code) {
+        String subject = "Código de verificação para troca de senha";
+        String body = "Olá " + user.getUsername() + ",\n\n"
+                + "Seu código de verificação é: " + code + "\n"
+                + "Ele expira em " + ttl.toMinutes() + " minutos.\n\n"
+                + "Se você não solicitou, ignore este email.\n\n"
+                + "Atenciosamente,\nEquipe";
+        mailService.sendEmail(user.getEmail(), subject, body);
+    }
+}
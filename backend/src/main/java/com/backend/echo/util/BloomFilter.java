@@ -0,0 +1,85 @@
+package com.backend.echo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro de Bloom de strings, seguro para várias threads (bits em AtomicLongArray).
+ * "Não contém" é definitivo; "talvez contenha" erra com a taxa {@link #expectedFpp()}.
+ * Não suporta remoção: valores apagados continuam dando positivo até reconstruir.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashes;
+    private final LongAdder inserted = new LongAdder();
+
+    /** Dimensiona para {@code expected} valores com taxa de falso positivo {@code fpp}. */
+    public BloomFilter(long expected, double fpp) {
+        long m = (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+    }
+
+    public void add(String value) {
+        long h = hash(value);
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long cur;
+            while (((cur = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, cur, cur | mask)) {
+                // outra thread mexeu na mesma palavra; tenta de novo
+            }
+        }
+        inserted.increment();
+    }
+
+    public boolean mightContain(String value) {
+        long h = hash(value);
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Taxa de falso positivo esperada com o número atual de inserções. */
+    public double expectedFpp() {
+        return Math.pow(1 - Math.exp(-(double) hashes * inserted.sum() / bitCount), hashes);
+    }
+
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    public long inserted() {
+        return inserted.sum();
+    }
+
+    // double hashing (Kirsch-Mitzenmacher): k índices a partir de dois hashes de 32 bits
+    private long index(int combined) {
+        return (combined & 0x7fffffffL) % bitCount;
+    }
+
+    // FNV-1a 64 sobre UTF-8 seguido do finalizador do MurmurHash3 para espalhar os bits
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,8 @@
+package com.backend.echo.util;
+
+public class ConversationKeys {
+    // chave canônica da conversa entre dois usuários: "{min}_{max}"
+    public static String of(long userA, long userB) {
+        return Math.min(userA, userB) + "_" + Math.max(userA, userB);
+    }
+}
@@ -0,0 +1,185 @@
+package com.backend.echo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Timing wheel com hash (estilo Varghese &amp; Lauck): agendar e cancelar custam O(1),
+ * com precisão de um tick. Feito para muitos timeouts longos que quase nunca disparam
+ * (ex.: liveness de sessões), onde uma tarefa por conexão num ScheduledExecutorService
+ * pesaria na fila de prioridade.
+ *
+ * Uma única thread avança o relógio e executa as tarefas vencidas; elas devem ser curtas.
+ */
+public final class HashedTimingWheel implements AutoCloseable {
+
+    /** Handle de um timeout agendado. */
+    public interface Timeout {
+        /** false se já disparou ou já foi cancelado. */
+        boolean cancel();
+    }
+
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private final Logger log = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean running = true;
+    private long tick; // só o worker usa
+
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int slots) {
+        if (tickDuration <= 0) throw new IllegalArgumentException("tick deve ser positivo");
+        if (slots <= 0 || slots > (1 << 20)) throw new IllegalArgumentException("slots deve estar entre 1 e 2^20");
+        int size = 1;
+        while (size < slots) size <<= 1; // potência de 2 para indexar com máscara
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) throw new IllegalStateException("Timing wheel encerrado");
+        Entry e = new Entry(this, task, System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)));
+        added.add(e);
+        return e;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                    continue;
+                }
+            }
+            removeCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Entry e = added.poll();
+            if (e == null) return;
+            if (e.state != Entry.PENDING) continue;
+            long due = e.deadline / tickNanos;
+            e.remainingRounds = Math.max(0, (due - tick) / wheel.length);
+            // vencidos no passado caem no tick atual
+            wheel[(int) (Math.max(due, tick) & mask)].add(e);
+        }
+    }
+
+    private void removeCancelled() {
+        Entry e;
+        while ((e = cancelled.poll()) != null) {
+            if (e.bucket != null) e.bucket.remove(e);
+        }
+    }
+
+    private void runTask(Entry e) {
+        try {
+            e.task.run();
+        } catch (Throwable t) {
+            log.warn("Tarefa do timing wheel falhou", t);
+        }
+    }
+
+    /** Lista duplamente encadeada; só o worker mexe. */
+    private final class Bucket {
+        private Entry head;
+        private Entry tail;
+
+        void add(Entry e) {
+            e.bucket = this;
+            if (head == null) {
+                head = tail = e;
+            } else {
+                tail.next = e;
+                e.prev = tail;
+                tail = e;
+            }
+        }
+
+        void expire() {
+            Entry e = head;
+            while (e != null) {
+                Entry next = e.next;
+                if (e.remainingRounds <= 0) {
+                    remove(e);
+                    if (Entry.STATE.compareAndSet(e, Entry.PENDING, Entry.EXPIRED)) runTask(e);
+                } else if (e.state == Entry.CANCELLED) {
+                    remove(e);
+                } else {
+                    e.remainingRounds--;
+                }
+                e = next;
+            }
+        }
+
+        void remove(Entry e) {
+            if (e.bucket != this) return;
+            if (e.prev != null) e.prev.next = e.next; else head = e.next;
+            if (e.next != null) e.next.prev = e.prev; else tail = e.prev;
+            e.prev = e.next = null;
+            e.bucket = null;
+        }
+    }
+
+    private static final class Entry implements Timeout {
+        static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+        static final AtomicIntegerFieldUpdater<Entry> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+        private final HashedTimingWheel owner;
+        private final Runnable task;
+        private final long deadline; // nanos desde startTime
+        private volatile int state;
+
+        // campos do worker
+        private long remainingRounds;
+        private Bucket bucket;
+        private Entry prev;
+        private Entry next;
+
+        Entry(HashedTimingWheel owner, Runnable task, long deadline) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) return false;
+            owner.cancelled.add(this);
+            return true;
+        }
+    }
+}
@@ -1,11 +1,33 @@
 package com.backend.echo.util;
 
+import com.backend.echo.security.AuthUser;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.security.Principal;
+
 public class SecurityUtils {
     public static String currentUsername() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         return auth != null ? auth.getName() : null;
     }
-}
\ No newline at end of file
+
+    /** Usuário da requisição atual, montado a partir do token (sem consulta). */
+    public static AuthUser currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof AuthUser user) return user;
+        throw new IllegalStateException("Não autenticado.");
+    }
+
+    public static Long currentUserId() {
+        return currentUser().id();
+    }
+
+    /** Id do usuário de um Principal do STOMP (o Authentication posto no CONNECT). */
+    public static Long userId(Principal principal) {
+        if (principal instanceof Authentication auth && auth.getPrincipal() instanceof AuthUser user) {
+            return user.id();
+        }
+        throw new IllegalStateException("Não autenticado.");
+    }
+}
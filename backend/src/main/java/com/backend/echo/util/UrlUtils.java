@@ -0,0 +1,14 @@
+package com.backend.echo.util;
+
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+public class UrlUtils {
+    // URL relativa (ex.: avatar gravado como /media/...) vira absoluta no host da requisição atual
+    public static String toAbsoluteUrl(String maybeRelative) {
+        if (maybeRelative == null || maybeRelative.isBlank()) return null;
+        if (maybeRelative.startsWith("http://") || maybeRelative.startsWith("https://")) return maybeRelative;
+        // concatena em vez de path(): a URL relativa pode ter query (?v= do avatar), que path() escaparia
+        return ServletUriComponentsBuilder.fromCurrentContextPath().toUriString()
+                + (maybeRelative.startsWith("/") ? maybeRelative : "/" + maybeRelative);
+    }
+}
@@ -1,5 +1,6 @@
 package com.backend.echo.websocket;
 
+import com.backend.echo.util.SecurityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -7,6 +8,7 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,43 +16,60 @@ import java.util.Map;
 public class CallSignalingController {
 
     private final SimpMessagingTemplate messaging;
+    private final DeliveryGate deliveryGate;
     private final Logger log = LoggerFactory.getLogger(CallSignalingController.class);
 
-    public CallSignalingController(SimpMessagingTemplate messaging) {
+    public CallSignalingController(SimpMessagingTemplate messaging, DeliveryGate deliveryGate) {
         this.messaging = messaging;
+        this.deliveryGate = deliveryGate;
     }
 
     @MessageMapping("/call/offer")
-    public void offer(@Payload Map<String, Object> offer) {
+    public void offer(@Payload Map<String, Object> offer, Principal principal) {
         Object to = offer == null ? null : offer.get("to");
         log.info("Call offer received, to={}", to);
-        if (to == null) return;
+        Long target = target(to);
+        if (target == null) return;
+        long from = SecurityUtils.userId(principal);
 
         Map<String, Object> payload = new HashMap<>();
-        payload.put("type", "call:offer");
-        // copy known fields defensively
-        if (offer.get("from") != null) payload.put("from", offer.get("from"));
-        if (offer.get("sdp") != null) payload.put("sdp", offer.get("sdp"));
-        if (offer.get("media") != null) payload.put("media", offer.get("media"));
-        // include any other fields if necessary
-        messaging.convertAndSend("/topic/notifications/" + String.valueOf(to), payload);
+        payload.put("from", from);
+        switch (deliveryGate.check("call:offer", target, from)) {
+            case BLOCKED -> { return; }
+            case MUTED -> {
+                // silenciado: só avisa a chamada perdida, sem SDP e sem tocar
+                payload.put("type", "call:missed");
+                if (offer.get("media") != null) payload.put("media", offer.get("media"));
+            }
+            case DELIVER -> {
+                payload.put("type", "call:offer");
+                // copy known fields defensively
+                if (offer.get("sdp") != null) payload.put("sdp", offer.get("sdp"));
+                if (offer.get("media") != null) payload.put("media", offer.get("media"));
+            }
+        }
+        messaging.convertAndSend("/topic/notifications/" + target, payload);
     }
 
+    // depois da oferta, silenciar não interrompe a chamada: answer/ice/end só param no bloqueio
     @MessageMapping("/call/answer")
-    public void answer(@Payload Map<String, Object> answer) {
+    public void answer(@Payload Map<String, Object> answer, Principal principal) {
         Object to = answer == null ? null : answer.get("to");
         log.info("Call answer received, to={}", to);
-        if (to == null) return;
+        Long target = target(to);
+        if (target == null) return;
+        long from = SecurityUtils.userId(principal);
+        if (deliveryGate.blocked("call:answer", target, from)) return;
 
         Map<String, Object> payload = new HashMap<>();
         payload.put("type", "call:answer");
-        if (answer.get("from") != null) payload.put("from", answer.get("from"));
+        payload.put("from", from);
         if (answer.get("sdp") != null) payload.put("sdp", answer.get("sdp"));
-        messaging.convertAndSend("/topic/notifications/" + String.valueOf(to), payload);
+        messaging.convertAndSend("/topic/notifications/" + target, payload);
     }
 
     @MessageMapping("/call/ice")
-    public void ice(@Payload Map<String, Object> ice) {
+    public void ice(@Payload Map<String, Object> ice, Principal principal) {
         Object to = ice == null ? null : ice.get("to");
         if (to == null) {
             log.warn("ICE message received without 'to' field: {}", ice);
@@ -64,26 +83,46 @@ public class CallSignalingController {
             log.debug("Ignoring null ICE candidate for to={}", to);
             return;
         }
+        Long target = target(to);
+        if (target == null) return;
+        long from = SecurityUtils.userId(principal);
+        if (deliveryGate.blocked("call:ice", target, from)) return;
 
         Map<String, Object> payload = new HashMap<>();
         payload.put("type", "call:ice");
-        if (ice.get("from") != null) payload.put("from", ice.get("from"));
+        payload.put("from", from);
         payload.put("candidate", candidate);
 
         log.debug("Forwarding ICE candidate to {}", to);
-        messaging.convertAndSend("/topic/notifications/" + String.valueOf(to), payload);
+        messaging.convertAndSend("/topic/notifications/" + target, payload);
     }
 
     @MessageMapping("/call/end")
-    public void end(@Payload Map<String, Object> end) {
+    public void end(@Payload Map<String, Object> end, Principal principal) {
         Object to = end == null ? null : end.get("to");
         if (to == null) {
             log.warn("Call end received without 'to': {}", end);
             return;
         }
+        Long target = target(to);
+        if (target == null) return;
+        long from = SecurityUtils.userId(principal);
+        if (deliveryGate.blocked("call:end", target, from)) return;
+
         Map<String, Object> payload = new HashMap<>();
         payload.put("type", "call:end");
-        if (end.get("from") != null) payload.put("from", end.get("from"));
-        messaging.convertAndSend("/topic/notifications/" + String.valueOf(to), payload);
+        payload.put("from", from);
+        messaging.convertAndSend("/topic/notifications/" + target, payload);
+    }
+
+    // "to" chega como número ou string; "from" sempre vem do Principal, nunca do payload
+    private Long target(Object to) {
+        if (to == null) return null;
+        try {
+            return Long.valueOf(String.valueOf(to));
+        } catch (NumberFormatException e) {
+            log.warn("Call signaling with invalid 'to': {}", to);
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
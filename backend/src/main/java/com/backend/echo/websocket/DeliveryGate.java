@@ -0,0 +1,49 @@
+package com.backend.echo.websocket;
+
+import com.backend.echo.cache.SocialGraphCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decide, antes de serializar, se um evento de {@code senderId} chega a {@code recipientId}.
+ * Bloqueio (em qualquer direção) derruba o evento; silenciado fica a critério de quem envia
+ * (descartar ou mandar uma versão reduzida). Consulta só o SocialGraphCache, sem banco.
+ */
+@Component
+public class DeliveryGate {
+
+    public enum Verdict { DELIVER, MUTED, BLOCKED }
+
+    private final SocialGraphCache socialGraph;
+    private final MeterRegistry meterRegistry;
+
+    public DeliveryGate(SocialGraphCache socialGraph, MeterRegistry meterRegistry) {
+        this.socialGraph = socialGraph;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** {@code type} é só para a métrica echo.notifications.suppressed. */
+    public Verdict check(String type, long recipientId, long senderId) {
+        Verdict verdict = socialGraph.isBlockedEitherWay(recipientId, senderId) ? Verdict.BLOCKED
+                : socialGraph.isMuting(recipientId, senderId) ? Verdict.MUTED
+                : Verdict.DELIVER;
+        if (verdict != Verdict.DELIVER) suppressed(type, verdict).increment();
+        return verdict;
+    }
+
+    /** Só bloqueio; para eventos em que silenciar não se aplica (ex.: chamada já aceita). */
+    public boolean blocked(String type, long recipientId, long senderId) {
+        if (!socialGraph.isBlockedEitherWay(recipientId, senderId)) return false;
+        suppressed(type, Verdict.BLOCKED).increment();
+        return true;
+    }
+
+    private Counter suppressed(String type, Verdict verdict) {
+        // o registry devolve o mesmo contador para o mesmo nome+tags
+        return Counter.builder("echo.notifications.suppressed")
+                .tag("type", type)
+                .tag("reason", verdict.name().toLowerCase())
+                .register(meterRegistry);
+    }
+}
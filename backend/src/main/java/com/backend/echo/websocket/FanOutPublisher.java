@@ -0,0 +1,85 @@
+package com.backend.echo.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Envio do mesmo payload para vários destinos com uma única serialização.
+ * {@code convertAndSend} passa pelo Jackson a cada chamada; aqui o payload vira bytes uma vez
+ * (num buffer reaproveitado de um pool pequeno) e a mesma mensagem imutável é entregue
+ * a todos os destinos. O broker só copia os headers por destino.
+ */
+@Component
+public class FanOutPublisher {
+
+    private static final int POOL_SIZE = 16;
+    private static final int MAX_POOLED_BYTES = 64 * 1024; // buffers maiores não voltam ao pool
+
+    private final SimpMessagingTemplate messaging;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Buffer> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public FanOutPublisher(SimpMessagingTemplate messaging, ObjectMapper objectMapper) {
+        this.messaging = messaging;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Serializa o payload uma vez; o resultado pode ser enviado para quantos destinos for preciso. */
+    public Message<byte[]> prepare(Object payload) {
+        Buffer buf = pool.poll();
+        if (buf == null) buf = new Buffer();
+        try {
+            objectMapper.writeValue(buf, payload);
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            MessageHeaders headers = accessor.getMessageHeaders();
+            // imutável: o template copia os headers a cada envio em vez de alterar a mensagem compartilhada
+            accessor.setImmutable();
+            return MessageBuilder.createMessage(buf.toExactArray(), headers);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao serializar payload", e);
+        } finally {
+            buf.reset();
+            if (buf.capacity() <= MAX_POOLED_BYTES) pool.offer(buf);
+        }
+    }
+
+    public void send(String destination, Message<byte[]> prepared) {
+        messaging.send(destination, prepared);
+    }
+
+    /** Equivalente a convertAndSendToUser, sem serializar de novo. */
+    public void sendToUser(String username, String destination, Message<byte[]> prepared) {
+        String user = StringUtils.replace(username, "/", "%2F");
+        String dest = destination.startsWith("/") ? destination : "/" + destination;
+        messaging.send(messaging.getUserDestinationPrefix() + user + dest, prepared);
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(1024);
+        }
+
+        byte[] toExactArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
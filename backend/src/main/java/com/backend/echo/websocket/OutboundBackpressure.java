@@ -0,0 +1,254 @@
+package com.backend.echo.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fila de saída limitada por sessão. O envio ao cliente nunca bloqueia quem publica:
+ * o frame entra na fila da sessão e uma thread virtual da própria sessão escreve no socket.
+ *
+ * Quando a fila passa de {@code buffer-bytes}, a política decide: {@code drop-droppable}
+ * descarta primeiro os frames mais antigos de destinos descartáveis (presença, digitação)
+ * e desconecta se ainda assim não couber; {@code disconnect} desconecta direto. Mensagens
+ * de chat nunca são descartadas. Uma escrita presa por mais de {@code send-time-ms}
+ * também derruba a sessão.
+ */
+@Component
+public class OutboundBackpressure {
+
+    public enum OverflowPolicy { DROP_DROPPABLE, DISCONNECT }
+
+    private final Logger log = LoggerFactory.getLogger(OutboundBackpressure.class);
+
+    private final int bufferBytes;
+    private final long sendTimeNanos;
+    private final OverflowPolicy policy;
+    private final List<String> droppablePrefixes;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, Outbound> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final Counter dropped;
+    private final Counter disconnected;
+
+    public OutboundBackpressure(@Value("${app.websocket.outbound.buffer-bytes:524288}") int bufferBytes,
+                                @Value("${app.websocket.outbound.send-time-ms:10000}") long sendTimeMs,
+                                @Value("${app.websocket.outbound.overflow:drop-droppable}") String overflow,
+                                @Value("${app.websocket.outbound.droppable:/user/queue/presence,/topic/typing/}") String[] droppable,
+                                MeterRegistry meterRegistry) {
+        this.bufferBytes = bufferBytes;
+        this.sendTimeNanos = sendTimeMs * 1_000_000;
+        this.policy = OverflowPolicy.valueOf(overflow.trim().toUpperCase().replace('-', '_'));
+        this.droppablePrefixes = Arrays.stream(droppable).map(String::trim).filter(s -> !s.isEmpty()).toList();
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("echo.ws.outbound.queued_bytes", queuedBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("echo.ws.outbound.max_session_bytes", sessions,
+                s -> s.values().stream().mapToLong(Outbound::bytes).max().orElse(0))
+                .baseUnit("bytes").register(meterRegistry);
+        this.dropped = Counter.builder("echo.ws.outbound.dropped").register(meterRegistry);
+        this.disconnected = Counter.builder("echo.ws.outbound.slow_consumer_disconnects").register(meterRegistry);
+    }
+
+    public int bufferBytes() {
+        return bufferBytes;
+    }
+
+    public int sendTimeMs() {
+        return (int) (sendTimeNanos / 1_000_000);
+    }
+
+    /** Entrega ao STOMP uma sessão cuja saída passa pela fila limitada. */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                Outbound out = new Outbound(session);
+                sessions.put(session.getId(), out);
+                super.afterConnectionEstablished(out);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                Outbound out = sessions.remove(session.getId());
+                if (out != null) out.discard();
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private boolean isDroppable(WebSocketMessage<?> message) {
+        String destination = destinationOf(message);
+        if (destination == null) return false;
+        for (String prefix : droppablePrefixes) {
+            if (destination.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    // lê o header destination do frame STOMP já codificado (ele vem logo depois do comando)
+    private static String destinationOf(WebSocketMessage<?> message) {
+        String head;
+        if (message instanceof TextMessage text) {
+            String payload = text.getPayload();
+            head = payload.substring(0, Math.min(payload.length(), 512));
+        } else if (message instanceof BinaryMessage binary) {
+            var buf = binary.getPayload().duplicate();
+            byte[] bytes = new byte[Math.min(buf.remaining(), 512)];
+            buf.get(bytes);
+            head = new String(bytes, StandardCharsets.UTF_8);
+        } else {
+            return null;
+        }
+        if (!head.startsWith("MESSAGE")) return null;
+        int start = head.indexOf("\ndestination:");
+        if (start < 0) return null;
+        start += "\ndestination:".length();
+        int end = head.indexOf('\n', start);
+        return end < 0 ? null : head.substring(start, end);
+    }
+
+    /** Sessão com fila própria; guardada pelo monitor. */
+    private final class Outbound extends WebSocketSessionDecorator {
+        private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+        private long bytes;
+        private boolean draining;
+        private boolean closed;
+        private long writeStartedAt; // 0 quando não há escrita em andamento
+        private Gauge depthGauge;    // só enquanto a sessão está lenta (acima de metade do limite)
+
+        Outbound(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            boolean startDrain;
+            synchronized (this) {
+                if (closed) return;
+                if (writeStartedAt != 0 && System.nanoTime() - writeStartedAt > sendTimeNanos) {
+                    slowConsumer("escrita parada há mais de " + sendTimeMs() + " ms");
+                    return;
+                }
+                int size = message.getPayloadLength();
+                if (bytes + size > bufferBytes && !makeRoom(size)) {
+                    slowConsumer("fila de saída acima de " + bufferBytes + " bytes");
+                    return;
+                }
+                queue.addLast(new Queued(message, size));
+                add(size);
+                startDrain = !draining;
+                draining = true;
+            }
+            if (startDrain) Thread.ofVirtual().name("ws-out-" + getId()).start(this::drain);
+        }
+
+        // chamado com o lock; descarta os descartáveis mais antigos até caber
+        private boolean makeRoom(int size) {
+            if (policy == OverflowPolicy.DISCONNECT) return false;
+            Iterator<Queued> it = queue.iterator();
+            while (bytes + size > bufferBytes && it.hasNext()) {
+                Queued q = it.next();
+                if (isDroppable(q.message())) {
+                    it.remove();
+                    add(-q.size());
+                    dropped.increment();
+                }
+            }
+            return bytes + size <= bufferBytes;
+        }
+
+        private void drain() {
+            while (true) {
+                Queued next;
+                synchronized (this) {
+                    next = closed ? null : queue.pollFirst();
+                    if (next == null) {
+                        draining = false;
+                        writeStartedAt = 0;
+                        return;
+                    }
+                    writeStartedAt = System.nanoTime();
+                }
+                try {
+                    getDelegate().sendMessage(next.message());
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Falha ao enviar para a sessão {}", getId(), e);
+                    synchronized (this) {
+                        discard();
+                        draining = false;
+                    }
+                    return;
+                }
+                synchronized (this) {
+                    if (!closed) add(-next.size()); // discard() já zerou a conta
+                }
+            }
+        }
+
+        // chamado com o lock
+        private void slowConsumer(String reason) {
+            log.info("Sessão {} desconectada por consumo lento: {}", getId(), reason);
+            disconnected.increment();
+            discard();
+            // fechar pode bloquear num socket cheio: fora da thread de quem publica
+            Thread.ofVirtual().start(() -> {
+                try {
+                    getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException e) {
+                    log.debug("Falha ao fechar a sessão {}", getId(), e);
+                }
+            });
+        }
+
+        synchronized void discard() {
+            if (closed) return;
+            closed = true;
+            queue.clear();
+            add(-bytes);
+        }
+
+        // chamado com o lock
+        private void add(long delta) {
+            bytes += delta;
+            queuedBytes.addAndGet(delta);
+            boolean slow = bytes > bufferBytes / 2;
+            if (slow && depthGauge == null) {
+                depthGauge = Gauge.builder("echo.ws.outbound.session_bytes", this, Outbound::bytes)
+                        .tag("session", getId()).baseUnit("bytes").register(meterRegistry);
+            } else if (!slow && depthGauge != null && bytes == 0) {
+                meterRegistry.remove(depthGauge);
+                depthGauge = null;
+            }
+        }
+    }
+
+    private record Queued(WebSocketMessage<?> message, int size) {}
+}
@@ -3,23 +3,23 @@ package com.backend.echo.websocket;
 
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
 @Controller
 public class PresenceController {
 
-    private final SimpMessagingTemplate messaging;
+    private final PresenceRegistry presenceRegistry;
 
-    public PresenceController(SimpMessagingTemplate messaging) {
-        this.messaging = messaging;
+    public PresenceController(PresenceRegistry presenceRegistry) {
+        this.presenceRegistry = presenceRegistry;
     }
 
     // Recebe do cliente em /app/presence
     @MessageMapping("/presence")
-    public void handlePresence(@Payload PresenceMessage msg) {
-        // msg deve conter { userId, status }
-        // re-broadcast para todos os inscritos em /topic/presence
-        messaging.convertAndSend("/topic/presence", msg);
+    public void handlePresence(@Payload PresenceMessage msg, SimpMessageHeaderAccessor headers) {
+        // o userId enviado pelo cliente é ignorado: vale o usuário da sessão.
+        // o registry repassa a mudança só para os amigos online (/user/queue/presence)
+        presenceRegistry.declare(headers.getSessionId(), msg.getStatus());
     }
 }
\ No newline at end of file
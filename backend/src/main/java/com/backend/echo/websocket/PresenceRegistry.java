@@ -0,0 +1,238 @@
+package com.backend.echo.websocket;
+
+import com.backend.echo.cache.SocialGraphCache;
+import com.backend.echo.util.SecurityUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presença calculada no servidor a partir das sessões STOMP de cada usuário.
+ * Mudanças são enviadas só para os amigos online (/user/queue/presence), depois de uma
+ * janela de debounce: reconexões e trocas rápidas de status dentro da janela não geram tráfego.
+ */
+@Component
+public class PresenceRegistry {
+
+    public static final String PRESENCE_QUEUE = "/queue/presence";
+    public static final String ONLINE = "ONLINE";
+    public static final String AWAY = "AWAY";
+    public static final String OFFLINE = "OFFLINE";
+
+    private final SimpMessagingTemplate messaging;
+    private final FanOutPublisher fanOut;
+    private final SocialGraphCache socialGraph;
+    private final DeliveryGate deliveryGate;
+    private final long debounceMs;
+    private final Logger log = LoggerFactory.getLogger(PresenceRegistry.class);
+
+    private final ConcurrentHashMap<String, Long> sessionUsers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, UserPresence> users = new ConcurrentHashMap<>();
+    private final Set<String> idleSessions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "presence-debounce");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PresenceRegistry(SimpMessagingTemplate messaging,
+                            FanOutPublisher fanOut,
+                            SocialGraphCache socialGraph,
+                            DeliveryGate deliveryGate,
+                            @Value("${app.presence.debounce-ms:2000}") long debounceMs) {
+        this.messaging = messaging;
+        this.fanOut = fanOut;
+        this.socialGraph = socialGraph;
+        this.deliveryGate = deliveryGate;
+        this.debounceMs = debounceMs;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal principal = event.getUser();
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (principal == null || sessionId == null) return;
+
+        Long userId = SecurityUtils.userId(principal); // vem do token, sem consulta
+
+        sessionUsers.put(sessionId, userId);
+        while (true) {
+            UserPresence p = users.computeIfAbsent(userId, id -> new UserPresence(principal.getName()));
+            synchronized (p) {
+                if (p.removed) continue; // saiu do mapa entre o lookup e o lock
+                p.sessions++;
+                scheduleFlush(userId, p);
+                return;
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        expire(event.getSessionId());
+    }
+
+    /** Encerra a presença da sessão sem esperar o DISCONNECT (ex.: expirada por falta de heartbeat). */
+    public void expire(String sessionId) {
+        Long userId = sessionUsers.remove(sessionId);
+        if (userId == null) return;
+        boolean wasIdle = idleSessions.remove(sessionId);
+        UserPresence p = users.get(userId);
+        if (p == null) return;
+        synchronized (p) {
+            if (p.removed) return;
+            p.sessions = Math.max(0, p.sessions - 1);
+            if (wasIdle) p.idle = Math.max(0, p.idle - 1);
+            p.declared.remove(sessionId);
+            scheduleFlush(userId, p);
+        }
+    }
+
+    /** Sessão sem tráfego (idle) ou de volta à atividade; ver SessionLivenessMonitor. */
+    public void setIdle(String sessionId, boolean idle) {
+        Long userId = sessionUsers.get(sessionId);
+        if (userId == null) return;
+        boolean changed = idle ? idleSessions.add(sessionId) : idleSessions.remove(sessionId);
+        if (!changed) return;
+        UserPresence p = users.get(userId);
+        if (p == null) return;
+        synchronized (p) {
+            if (p.removed) return;
+            p.idle = Math.max(0, p.idle + (idle ? 1 : -1));
+            scheduleFlush(userId, p);
+        }
+    }
+
+    // ao assinar a fila de presença o cliente recebe o estado atual dos amigos online
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.endsWith(PRESENCE_QUEUE) || event.getUser() == null) return;
+        Long userId = sessionUsers.get(accessor.getSessionId());
+        if (userId == null) return;
+
+        for (long friendId : socialGraph.friendsOf(userId)) {
+            UserPresence fp = users.get(friendId);
+            if (fp == null || deliveryGate.blocked("presence", userId, friendId)) continue;
+            String status;
+            synchronized (fp) {
+                status = fp.published;
+            }
+            if (status != null && !OFFLINE.equals(status)) {
+                messaging.convertAndSendToUser(event.getUser().getName(), PRESENCE_QUEUE,
+                        new PresenceMessage(String.valueOf(friendId), status));
+            }
+        }
+    }
+
+    /**
+     * Status declarado pelo cliente (ONLINE, AWAY, DND...) para a sessão informada; vale até a
+     * sessão declarar outro ou cair. O status do usuário combina o de todas as sessões.
+     */
+    public void declare(String sessionId, String status) {
+        Long userId = sessionId != null ? sessionUsers.get(sessionId) : null;
+        if (userId == null || status == null || status.isBlank()) return;
+        UserPresence p = users.get(userId);
+        if (p == null) return;
+        synchronized (p) {
+            if (p.removed) return;
+            p.declared.remove(sessionId); // reinsere no fim: a ordem é a da última declaração
+            p.declared.put(sessionId, status.trim().toUpperCase());
+            scheduleFlush(userId, p);
+        }
+    }
+
+    // chamado com o lock de p
+    private void scheduleFlush(long userId, UserPresence p) {
+        if (p.pending != null) return; // já existe um envio agendado; ele lerá o estado final
+        p.pending = scheduler.schedule(() -> flush(userId, p), debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(long userId, UserPresence p) {
+        String status;
+        synchronized (p) {
+            p.pending = null;
+            status = p.effective();
+            boolean changed = !status.equals(p.published) && !(p.published == null && OFFLINE.equals(status));
+            p.published = status;
+            if (p.sessions == 0) {
+                p.removed = true;
+                users.remove(userId, p);
+            }
+            if (!changed) return; // oscilou e voltou ao estado já publicado
+        }
+        try {
+            publishToFriends(userId, status);
+        } catch (Exception e) {
+            log.warn("Falha ao publicar presença de {}", userId, e);
+        }
+    }
+
+    private void publishToFriends(long userId, String status) {
+        Message<byte[]> msg = null; // serializado uma vez, só se houver amigo online
+        for (long friendId : socialGraph.friendsOf(userId)) {
+            UserPresence fp = users.get(friendId);
+            if (fp == null) continue; // amigo offline não recebe nada
+            if (deliveryGate.blocked("presence", friendId, userId)) continue;
+            if (msg == null) msg = fanOut.prepare(new PresenceMessage(String.valueOf(userId), status));
+            fanOut.sendToUser(fp.username, PRESENCE_QUEUE, msg);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /** Estado de um usuário com pelo menos uma sessão (ou com envio pendente); guardado pelo monitor. */
+    private static final class UserPresence {
+        private final String username;
+        private int sessions;
+        private int idle;         // sessões sem tráfego recente
+        // status declarado por sessão, na ordem da última declaração
+        private final LinkedHashMap<String, String> declared = new LinkedHashMap<>();
+        private String published; // último status enviado aos amigos
+        private ScheduledFuture<?> pending;
+        private boolean removed;
+
+        UserPresence(String username) {
+            this.username = username;
+        }
+
+        String effective() {
+            if (sessions == 0) return OFFLINE;
+            // sessão que não declarou conta como ONLINE, e qualquer sessão ONLINE vence: o
+            // OFFLINE do logout numa aba não esconde o usuário conectado em outra
+            String status = declared.size() < sessions || declared.containsValue(ONLINE) ? ONLINE : null;
+            if (status == null) {
+                // senão o último status declarado que não seja OFFLINE (OFFLINE só se todas declararam)
+                status = OFFLINE;
+                for (String s : declared.values()) {
+                    if (!OFFLINE.equals(s)) status = s;
+                }
+            }
+            // todas as sessões caladas: ONLINE vira AWAY, status escolhido pelo cliente se mantém
+            if (idle >= sessions && ONLINE.equals(status)) return AWAY;
+            return status;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.backend.echo.websocket;
+
+import com.backend.echo.util.HashedTimingWheel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liveness das sessões STOMP a partir do tráfego de entrada (frames e heartbeats).
+ * Cada sessão tem um único timeout no timing wheel; receber um frame só atualiza
+ * {@code lastSeen}, e o timeout se reagenda sozinho quando vence com a sessão ativa.
+ *
+ * Sem tráfego por {@code away-after-ms} a sessão conta como ausente (AWAY se todas as
+ * sessões do usuário estiverem assim); sem tráfego por {@code offline-after-ms} a presença
+ * é encerrada e a conexão fechada.
+ */
+@Component
+public class SessionLivenessMonitor implements ChannelInterceptor {
+
+    private final Logger log = LoggerFactory.getLogger(SessionLivenessMonitor.class);
+
+    private final PresenceRegistry presenceRegistry;
+    private final long awayAfterNanos;
+    private final long offlineAfterNanos;
+    private final HashedTimingWheel wheel;
+    private final ConcurrentHashMap<String, Liveness> sessions = new ConcurrentHashMap<>();
+
+    // @Lazy: o registry depende do SimpMessagingTemplate, criado depois da configuração do broker
+    public SessionLivenessMonitor(@Lazy PresenceRegistry presenceRegistry,
+                                  @Value("${app.presence.away-after-ms:20000}") long awayAfterMs,
+                                  @Value("${app.presence.offline-after-ms:30000}") long offlineAfterMs,
+                                  @Value("${app.presence.wheel-tick-ms:500}") long tickMs,
+                                  @Value("${app.presence.wheel-slots:512}") int slots) {
+        if (awayAfterMs <= 0 || offlineAfterMs <= awayAfterMs) {
+            throw new IllegalArgumentException("app.presence.offline-after-ms deve ser maior que app.presence.away-after-ms");
+        }
+        this.presenceRegistry = presenceRegistry;
+        this.awayAfterNanos = TimeUnit.MILLISECONDS.toNanos(awayAfterMs);
+        this.offlineAfterNanos = TimeUnit.MILLISECONDS.toNanos(offlineAfterMs);
+        this.wheel = new HashedTimingWheel("session-liveness", tickMs, TimeUnit.MILLISECONDS, slots);
+    }
+
+    /** Decora o handler do endpoint para conhecer as WebSocketSession (necessárias para fechar). */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                register(session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                unregister(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    // todo frame do cliente, inclusive heartbeat, passa pelo canal de entrada
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        Liveness l = sessionId != null ? sessions.get(sessionId) : null;
+        if (l != null) l.touch();
+        return message;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        wheel.close();
+    }
+
+    private void register(WebSocketSession session) {
+        Liveness l = new Liveness(session);
+        sessions.put(session.getId(), l);
+        l.arm(awayAfterNanos);
+    }
+
+    private void unregister(String sessionId) {
+        Liveness l = sessions.remove(sessionId);
+        if (l != null) l.cancel();
+    }
+
+    private final class Liveness implements Runnable {
+        private final WebSocketSession session;
+        private volatile long lastSeen = System.nanoTime();
+        private volatile boolean idle;
+        private HashedTimingWheel.Timeout timeout; // guardado pelo monitor
+
+        Liveness(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void touch() {
+            lastSeen = System.nanoTime();
+            if (idle) {
+                synchronized (this) {
+                    if (!idle) return;
+                    idle = false;
+                    presenceRegistry.setIdle(session.getId(), false);
+                }
+            }
+        }
+
+        synchronized void arm(long delayNanos) {
+            timeout = wheel.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void cancel() {
+            if (timeout != null) timeout.cancel();
+            timeout = null;
+        }
+
+        // roda na thread do wheel
+        @Override
+        public void run() {
+            long silent = System.nanoTime() - lastSeen;
+            if (silent >= offlineAfterNanos) {
+                expire();
+                return;
+            }
+            synchronized (this) {
+                if (timeout == null) return; // desregistrada
+                if (silent >= awayAfterNanos && !idle) {
+                    idle = true;
+                    presenceRegistry.setIdle(session.getId(), true);
+                }
+                long next = (idle ? offlineAfterNanos : awayAfterNanos) - silent;
+                timeout = wheel.schedule(this, next, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void expire() {
+            if (sessions.remove(session.getId(), this)) {
+                cancel();
+                // encerra a presença já; o DISCONNECT do fechamento pode demorar numa conexão morta
+                presenceRegistry.expire(session.getId());
+                // fechar pode bloquear numa conexão morta; fora da thread do wheel
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                    } catch (IOException e) {
+                        log.debug("Falha ao fechar sessão {} expirada", session.getId(), e);
+                    }
+                });
+            }
+        }
+    }
+}
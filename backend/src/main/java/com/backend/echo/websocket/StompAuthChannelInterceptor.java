@@ -1,9 +1,7 @@
 // Java
 package com.backend.echo.websocket;
 
-import com.backend.echo.security.JwtUtil;
-import com.backend.echo.service.CustomUserDetailsService;
-import io.jsonwebtoken.Claims;
+import com.backend.echo.security.TokenAuthenticator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -11,16 +9,13 @@ import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
 public class StompAuthChannelInterceptor implements ChannelInterceptor {
 
-    private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final TokenAuthenticator tokenAuthenticator;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -31,11 +26,7 @@ public class StompAuthChannelInterceptor implements ChannelInterceptor {
             if (auth != null && auth.startsWith("Bearer ")) {
                 String token = auth.substring(7);
                 try {
-                    Claims claims = jwtUtil.parseClaims(token);
-                    String username = claims.getSubject();
-                    UserDetails ud = userDetailsService.loadUserByUsername(username);
-                    var authToken = new UsernamePasswordAuthenticationToken(ud, null, ud.getAuthorities());
-                    accessor.setUser(authToken);
+                    accessor.setUser(tokenAuthenticator.authenticate(token));
                 } catch (Exception ignored) {}
             }
         }
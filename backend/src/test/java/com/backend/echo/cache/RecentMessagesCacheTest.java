@@ -0,0 +1,60 @@
+package com.backend.echo.cache;
+
+import com.backend.echo.dto.MessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentMessagesCacheTest {
+
+    private static MessageDTO message(long id, long seq) {
+        return new MessageDTO(id, 1L, 2L, "x".repeat(100), LocalDateTime.now(), null, seq);
+    }
+
+    @Test
+    void evictsUnreferencedConversationsAndKeepsTheHotOne() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // ~360 bytes por mensagem: cabem umas 30 conversas de uma mensagem
+        RecentMessagesCache cache = new RecentMessagesCache(10, 10_000, registry);
+
+        for (int i = 0; i < 200; i++) {
+            cache.append("c" + i, message(i + 1, 1));
+            cache.page("hot", Long.MAX_VALUE, 1); // acesso frequente: sempre marcada
+            if (i == 0) cache.append("hot", message(1_000_000, 1));
+        }
+
+        assertThat(registry.get("echo.recent_messages.bytes").gauge().value()).isLessThanOrEqualTo(10_000);
+        assertThat(registry.get("echo.recent_messages.conversations").gauge().value()).isLessThan(40);
+        assertThat(cache.page("hot", Long.MAX_VALUE, 1)).isNotNull();
+        assertThat(cache.page("c199", Long.MAX_VALUE, 1)).isNotNull();
+        assertThat(cache.page("c0", Long.MAX_VALUE, 1)).isNull();
+    }
+
+    @Test
+    void afterSeqOnlyAnswersWhenContiguousFromTheCursor() {
+        RecentMessagesCache cache = new RecentMessagesCache(3, 1_000_000, new SimpleMeterRegistry());
+        for (int seq = 1; seq <= 5; seq++) cache.append("k", message(seq, seq));
+
+        // o buffer guarda 3..5: a partir de 2 está completo, a partir de 1 faltaria a seq 2
+        assertThat(cache.afterSeq("k", 2, Long.MAX_VALUE, 10)).extracting(MessageDTO::getSeq).containsExactly(3L, 4L, 5L);
+        assertThat(cache.afterSeq("k", 1, Long.MAX_VALUE, 10)).isNull();
+        assertThat(cache.afterSeq("k", 5, Long.MAX_VALUE, 10)).isEqualTo(List.of());
+    }
+
+    @Test
+    void afterSeqStopsAtTheDurableSeqEvenWhenComplete() {
+        RecentMessagesCache cache = new RecentMessagesCache(10, 1_000_000, new SimpleMeterRegistry());
+        cache.mergeLatest("k", List.of(), true);
+        // 3 ainda gravando: 4 já está no buffer, mas não pode sair antes dela
+        for (long seq : new long[]{1, 2, 4}) cache.append("k", message(seq, seq));
+
+        assertThat(cache.afterSeq("k", 0, 2, 10)).extracting(MessageDTO::getSeq).containsExactly(1L, 2L);
+        assertThat(cache.afterSeq("k", 2, 2, 10)).isEqualTo(List.of());
+        cache.append("k", message(3, 3));
+        assertThat(cache.afterSeq("k", 2, 4, 10)).extracting(MessageDTO::getSeq).containsExactly(3L, 4L);
+    }
+}
@@ -0,0 +1,45 @@
+package com.backend.echo.cache;
+
+import com.backend.echo.entity.User;
+import com.backend.echo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSearchIndexTest {
+
+    private final UserRepository users = mock(UserRepository.class);
+    private final UserSearchIndex index = new UserSearchIndex(users, 0, new SimpleMeterRegistry());
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    @Test
+    void refreshPicksUpUsersCreatedElsewhereWithoutOverwritingLocalEdits() {
+        when(users.findSearchRowsAfter(eq(0L), any())).thenReturn(rows(new Object[]{1L, "ana", null}));
+        index.load();
+
+        // ana trocou de nome neste nó; carol e bruno foram cadastrados em outro
+        User ana = new User();
+        ana.setId(1L);
+        ana.setUsername("ana_nova");
+        index.put(ana);
+        when(users.findSearchRowsAfter(eq(1L), any())).thenReturn(rows(
+                new Object[]{2L, "bruno", null}, new Object[]{3L, "carol", null}));
+        when(users.findSearchRowsAfter(eq(3L), any())).thenReturn(rows());
+        index.refresh();
+
+        assertThat(index.search("bru", 10, 0)).extracting(UserSearchIndex.Card::id).containsExactly(2L);
+        assertThat(index.search("car", 10, 0)).extracting(UserSearchIndex.Card::id).containsExactly(3L);
+        assertThat(index.search("ana", 10, 0)).extracting(UserSearchIndex.Card::username).containsExactly("ana_nova");
+    }
+}
@@ -0,0 +1,163 @@
+package com.backend.echo.mail;
+
+import com.backend.echo.entity.OutboundMail;
+import com.backend.echo.repository.OutboundMailRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.URLName;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MailDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 1000;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final OutboundMailRepository outbox = mock(OutboundMailRepository.class);
+
+    @BeforeEach
+    void resetConnections() {
+        CountingTransport.connects.set(0);
+    }
+
+    @Test
+    void batchesShareOneConnection() throws Exception {
+        MailDispatcher dispatcher = dispatcher(ServerSetupTest.SMTP.getPort());
+
+        whenDue(mail(1L, 0), mail(2L, 0), mail(3L, 0));
+        assertThat(dispatcher.drainOnce()).isEqualTo(3);
+        whenDue(mail(4L, 0), mail(5L, 0));
+        assertThat(dispatcher.drainOnce()).isEqualTo(2);
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(5);
+        assertThat(CountingTransport.connects).hasValue(1);
+        verify(outbox).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+        verify(outbox).deleteAllByIdInBatch(List.of(4L, 5L));
+        verify(outbox, never()).saveAll(anyCollection());
+    }
+
+    @Test
+    void failureBacksOffExponentially() throws Exception {
+        MailDispatcher dispatcher = dispatcher(closedPort());
+        OutboundMail mail = mail(1L, 1);
+
+        whenDue(mail);
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.drainOnce();
+
+        // segunda tentativa falhou: base * 2
+        assertThat(saved()).containsExactly(mail);
+        assertThat(mail.getStatus()).isEqualTo(OutboundMail.Status.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(2);
+        assertThat(mail.getLastError()).isNotBlank();
+        assertThat(mail.getNextAttemptAt())
+                .isAfterOrEqualTo(before.plusNanos(2 * BASE_BACKOFF_MS * 1_000_000))
+                .isBefore(before.plusNanos(3 * BASE_BACKOFF_MS * 1_000_000));
+        verify(outbox, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void lastFailedAttemptMovesToDead() throws Exception {
+        MailDispatcher dispatcher = dispatcher(closedPort());
+        OutboundMail mail = mail(1L, MAX_ATTEMPTS - 1);
+        LocalDateTime scheduled = mail.getNextAttemptAt();
+
+        whenDue(mail);
+        dispatcher.drainOnce();
+
+        assertThat(saved()).containsExactly(mail);
+        assertThat(mail.getStatus()).isEqualTo(OutboundMail.Status.DEAD);
+        assertThat(mail.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(mail.getNextAttemptAt()).isEqualTo(scheduled);
+    }
+
+    private MailDispatcher dispatcher(int port) throws Exception {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.connectiontimeout", "2000");
+        sender.setJavaMailProperties(props);
+        Provider counting = new Provider(Provider.Type.TRANSPORT, "smtp", CountingTransport.class.getName(), "echo", null);
+        sender.getSession().addProvider(counting);
+        sender.getSession().setProvider(counting);
+        return new MailDispatcher(sender, outbox, false, 50, 5000, 30000,
+                MAX_ATTEMPTS, BASE_BACKOFF_MS, 60000, new SimpleMeterRegistry());
+    }
+
+    private void whenDue(OutboundMail... mails) {
+        when(outbox.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(any(), any(), any()))
+                .thenReturn(new ArrayList<>(List.of(mails)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OutboundMail> saved() {
+        ArgumentCaptor<List<OutboundMail>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outbox).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private static OutboundMail mail(Long id, int attempts) {
+        return OutboundMail.builder()
+                .id(id)
+                .recipient("user" + id + "@echo.test")
+                .subject("Assunto " + id)
+                .body("Corpo " + id)
+                .status(OutboundMail.Status.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now().minusSeconds(1))
+                .createdAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /** SMTPTransport que conta as conexões abertas (registrado como provider smtp da sessão). */
+    public static class CountingTransport extends SMTPTransport {
+
+        static final AtomicInteger connects = new AtomicInteger();
+
+        public CountingTransport(Session session, URLName url) {
+            super(session, url);
+        }
+
+        @Override
+        protected synchronized boolean protocolConnect(String host, int port, String user, String password)
+                throws MessagingException {
+            boolean connected = super.protocolConnect(host, port, user, password);
+            if (connected) connects.incrementAndGet();
+            return connected;
+        }
+    }
+}
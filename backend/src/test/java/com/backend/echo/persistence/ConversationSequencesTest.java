@@ -0,0 +1,80 @@
+package com.backend.echo.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversationSequencesTest {
+
+    private static final String KEY = "1_2";
+
+    private final MessageStore store = mock(MessageStore.class);
+    private final ConversationSequences sequences = new ConversationSequences(store, new SimpleMeterRegistry());
+
+    @Test
+    void durableWaitsForTheLowestSeqStillInFlight() {
+        when(store.lastSeq(KEY)).thenReturn(10L);
+        long a = sequences.next(KEY), b = sequences.next(KEY), c = sequences.next(KEY);
+        assertThat(sequences.durable(KEY)).isEqualTo(10);
+
+        sequences.done(KEY, c);
+        sequences.done(KEY, b);
+        assertThat(sequences.durable(KEY)).isEqualTo(10);
+        sequences.done(KEY, a);
+        assertThat(sequences.durable(KEY)).isEqualTo(13);
+        assertThat(sequences.durable("3_4")).isEqualTo(Long.MAX_VALUE);
+    }
+
+    // write-behind: o serviço termina antes do commit do writer, ou o writer antes do serviço
+    @Test
+    void heldSeqNeedsBothDones() {
+        long a = sequences.next(KEY), b = sequences.next(KEY);
+        sequences.hold(KEY, a);
+        sequences.hold(KEY, b);
+
+        sequences.done(KEY, a); // serviço
+        sequences.done(KEY, b); // writer
+        assertThat(sequences.durable(KEY)).isZero();
+        sequences.done(KEY, a); // writer
+        assertThat(sequences.durable(KEY)).isEqualTo(1);
+        sequences.done(KEY, b); // serviço
+        assertThat(sequences.durable(KEY)).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentDonesInAnyOrderReachTheLastSeq() throws Exception {
+        int threads = 8, perThread = 5_000;
+        List<Long> issued = Collections.synchronizedList(new ArrayList<>());
+        ConcurrentLinkedQueue<String> regressions = new ConcurrentLinkedQueue<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                long seen = 0;
+                for (int i = 0; i < perThread; i++) {
+                    long seq = sequences.next(KEY);
+                    issued.add(seq);
+                    if (seq % 7 == 0) Thread.yield();
+                    sequences.done(KEY, seq);
+                    long durable = sequences.durable(KEY);
+                    if (durable < seen) regressions.add(seen + " -> " + durable);
+                    seen = durable;
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) worker.join();
+
+        assertThat(regressions).isEmpty();
+        assertThat(issued).doesNotHaveDuplicates().hasSize(threads * perThread);
+        assertThat(sequences.durable(KEY)).isEqualTo((long) threads * perThread);
+    }
+}
@@ -0,0 +1,151 @@
+package com.backend.echo.persistence;
+
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.repository.ConversationRepository;
+import com.backend.echo.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LogMessageStoreTest {
+
+    private static final String KEY = "1_2";
+
+    @TempDir
+    Path dir;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private LogMessageStore store;
+
+    @AfterEach
+    void stop() throws Exception {
+        if (store != null) store.stop();
+    }
+
+    private LogMessageStore open() throws Exception {
+        store = new LogMessageStore(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                messageRepository, new SimpleMeterRegistry(), dir.toString(), 4096, 4, 100, 500, 10);
+        return store;
+    }
+
+    private static JournaledMessage message(long id, long seq) {
+        return new JournaledMessage(id, 1, 2, "mensagem " + id, null,
+                LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(id), seq);
+    }
+
+    private static MessageDTO row(long id) {
+        return new MessageDTO(id, 1L, 2L, "antiga " + id, LocalDateTime.of(2023, 1, 1, 0, 0).plusSeconds(id), null, id);
+    }
+
+    private static List<MessageDTO> rows(long from, long to, boolean descending) {
+        List<MessageDTO> out = new ArrayList<>();
+        LongStream.rangeClosed(from, to).forEach(id -> out.add(row(id)));
+        return descending ? out.reversed() : out;
+    }
+
+    private static List<Long> ids(List<MessageDTO> page) {
+        return page.stream().map(MessageDTO::getId).toList();
+    }
+
+    private void writeLog(long firstId, long lastId) throws Exception {
+        try (MessageLog log = new MessageLog(dir, 4096, 4)) {
+            for (long id = firstId; id <= lastId; id++) log.append(message(id, id));
+            log.sync(log.endPosition());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void startReplaysOnlyTheInboxAfterTheCheckpoint() throws Exception {
+        long checkpoint;
+        try (MessageLog log = new MessageLog(dir, 4096, 4)) {
+            log.append(message(1, 1));
+            checkpoint = log.append(message(2, 2));
+            for (long id = 3; id <= 5; id++) log.append(message(id, id));
+            log.sync(log.endPosition());
+        }
+        Files.write(dir.resolve("inbox.checkpoint"), ByteBuffer.allocate(8).putLong(0, checkpoint).array());
+
+        open().start();
+
+        ArgumentCaptor<Collection<InboxUpdate>> applied = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(eq(ConversationRepository.UPSERT_SQL), applied.capture(), anyInt(), any());
+        // duas linhas por mensagem (remetente e destinatário), só das que vieram depois do checkpoint
+        assertThat(applied.getValue()).extracting(InboxUpdate::messageId).containsExactly(3L, 3L, 4L, 4L, 5L, 5L);
+        assertThat(applied.getValue()).extracting(InboxUpdate::unreadIncrement).containsExactly(0, 1, 0, 1, 0, 1);
+
+        // checkpoint avançou até o fim: um novo restart não reaplica nada
+        store.stop();
+        store = null;
+        clearInvocations(jdbcTemplate);
+        open().start();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(Collection.class), anyInt(), any());
+    }
+
+    @Test
+    void historyContinuesIntoTheMessageTableBeforeTheLog() throws Exception {
+        // ids e seqs 1..50 na tabela (store anterior), 51..60 no log
+        writeLog(51, 60);
+        when(messageRepository.findMaxId(KEY)).thenReturn(50L);
+        when(messageRepository.findLastSeq(KEY)).thenReturn(50L);
+        when(messageRepository.findPageBefore(KEY, 51L, PageRequest.of(0, 5))).thenReturn(rows(46, 50, true));
+        when(messageRepository.findPageBefore(KEY, 30L, PageRequest.of(0, 15))).thenReturn(rows(15, 29, true));
+        when(messageRepository.findPageAfterSeq(KEY, 45L, PageRequest.of(0, 10))).thenReturn(rows(46, 50, false));
+        open();
+
+        assertThat(ids(store.pageBefore(KEY, Long.MAX_VALUE, 15))).isEqualTo(LongStream.rangeClosed(46, 60)
+                .boxed().toList().reversed());
+        assertThat(ids(store.pageBefore(KEY, 30, 15))).isEqualTo(LongStream.rangeClosed(15, 29)
+                .boxed().toList().reversed());
+        assertThat(store.pageAfterSeq(KEY, 45, 10)).extracting(MessageDTO::getSeq)
+                .containsExactly(46L, 47L, 48L, 49L, 50L, 51L, 52L, 53L, 54L, 55L);
+        assertThat(store.pageAfterSeq(KEY, 50, 3)).extracting(MessageDTO::getSeq).containsExactly(51L, 52L, 53L);
+        assertThat(store.lastSeq(KEY)).isEqualTo(60);
+
+        // a tabela não muda com o log ligado: consultada uma vez por conversa
+        verify(messageRepository).findMaxId(KEY);
+        verify(messageRepository).findLastSeq(KEY);
+        verify(messageRepository, never()).findPageAfterSeq(eq(KEY), eq(50L), any());
+    }
+
+    @Test
+    void conversationOnlyInTheTableSeedsTheSequence() throws Exception {
+        when(messageRepository.findMaxId("3_4")).thenReturn(900L);
+        when(messageRepository.findLastSeq("3_4")).thenReturn(12L);
+        when(messageRepository.findMaxId("5_6")).thenReturn(0L);
+        open();
+
+        assertThat(store.lastSeq("3_4")).isEqualTo(12);
+        assertThat(store.lastSeq("5_6")).isZero();
+        assertThat(store.pageBefore("5_6", Long.MAX_VALUE, 20)).isEmpty();
+        verify(messageRepository, never()).findPageBefore(eq("5_6"), anyLong(), any());
+    }
+}
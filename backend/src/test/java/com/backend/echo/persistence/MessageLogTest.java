@@ -0,0 +1,237 @@
+package com.backend.echo.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageLogTest {
+
+    private static final String KEY = "1_2";
+    private static final String OTHER = "3_4";
+
+    @TempDir
+    Path dir;
+
+    private static JournaledMessage message(long id, long seq) {
+        return message(id, seq, 1, 2);
+    }
+
+    private static JournaledMessage message(long id, long seq, long sender, long receiver) {
+        return new JournaledMessage(id, sender, receiver, "mensagem " + id, null,
+                LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(id), seq);
+    }
+
+    private static List<Long> ids(List<JournaledMessage> page) {
+        return page.stream().map(JournaledMessage::id).toList();
+    }
+
+    private static List<Long> seqs(List<JournaledMessage> page) {
+        return page.stream().map(JournaledMessage::seq).toList();
+    }
+
+    private static List<Long> range(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().toList();
+    }
+
+    @Test
+    void tornTailIsDroppedOnReopenAndTheLogKeepsGoing() throws Exception {
+        long afterSecond;
+        try (MessageLog log = new MessageLog(dir, 4096, 4)) {
+            log.append(message(1, 1));
+            afterSecond = log.append(message(2, 2));
+            log.append(message(3, 3));
+            log.sync(log.endPosition());
+        }
+        // queda no meio do terceiro registro: o último byte do payload não chegou ao disco
+        int third = (int) afterSecond; // offset no segmento 1
+        try (FileChannel ch = FileChannel.open(dir.resolve(String.format("%016d.log", 1)), StandardOpenOption.WRITE,
+                StandardOpenOption.READ)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            ch.read(length, third);
+            int lastByte = third + 12 + length.getInt(0) - 1;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, lastByte);
+            ch.write(ByteBuffer.wrap(new byte[]{(byte) (b.get(0) ^ 0x5a)}), lastByte);
+        }
+
+        try (MessageLog log = new MessageLog(dir, 4096, 4)) {
+            assertThat(seqs(log.pageAfterSeq(KEY, 0, 10))).containsExactly(1L, 2L);
+            assertThat(log.lastSeq(KEY)).isEqualTo(2);
+            List<Long> replayed = new ArrayList<>();
+            log.forEachSince(0, e -> replayed.add(e.message().id()));
+            assertThat(replayed).containsExactly(1L, 2L);
+
+            log.append(message(3, 3));
+            log.sync(log.endPosition());
+        }
+        try (MessageLog log = new MessageLog(dir, 4096, 4)) {
+            assertThat(ids(log.pageBefore(KEY, Long.MAX_VALUE, 10))).containsExactly(3L, 2L, 1L);
+        }
+    }
+
+    @Test
+    void pagesAcrossSegmentsWithOutOfOrderAppends() throws Exception {
+        int n = 300;
+        try (MessageLog log = new MessageLog(dir, 2048, 4)) {
+            // envios simultâneos: id e seq atribuídos antes do append, que entra trocado aos pares
+            for (int i = 1; i <= n; i += 2) {
+                log.append(message(i + 1, i + 1));
+                log.append(message(100_000 + i, i, 3, 4));
+                log.append(message(i, i));
+            }
+            assertThat(log.segmentCount()).isGreaterThan(5);
+            assertPagesCover(log, n);
+
+            for (long segment : log.compactable(Long.MAX_VALUE)) log.compact(segment);
+            assertPagesCover(log, n);
+        }
+        // reaberto: índice refeito dos .seg e do .log que sobrou
+        try (MessageLog log = new MessageLog(dir, 2048, 4)) {
+            assertPagesCover(log, n);
+            assertThat(log.lastSeq(KEY)).isEqualTo(n);
+            assertThat(log.lastSeq(OTHER)).isEqualTo(n - 1);
+        }
+    }
+
+    private static void assertPagesCover(MessageLog log, int n) {
+        List<Long> back = new ArrayList<>();
+        long before = Long.MAX_VALUE;
+        while (true) {
+            List<Long> page = ids(log.pageBefore(KEY, before, 7));
+            if (page.isEmpty()) break;
+            assertThat(page).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+            back.addAll(page);
+            before = page.get(page.size() - 1);
+        }
+        assertThat(back).isEqualTo(range(1, n).reversed());
+
+        List<Long> forward = new ArrayList<>();
+        long after = 0;
+        while (true) {
+            List<Long> page = seqs(log.pageAfterSeq(KEY, after, 7));
+            if (page.isEmpty()) break;
+            forward.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+        assertThat(forward).isEqualTo(range(1, n));
+    }
+
+    @Test
+    void compactionSwapsSegmentsUnderActiveReaders() throws Exception {
+        int n = 400;
+        try (MessageLog log = new MessageLog(dir, 2048, 4)) {
+            for (int i = 1; i <= n; i++) {
+                log.append(message(i, i));
+                log.append(message(100_000 + i, i, 3, 4));
+            }
+            List<Long> closed = log.compactable(Long.MAX_VALUE);
+            assertThat(closed).hasSizeGreaterThan(5);
+
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicInteger reads = new AtomicInteger();
+            ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                Thread reader = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (!done.get() || reads.get() < 100) {
+                        long cursor = random.nextLong(1, n + 1);
+                        List<Long> before = ids(log.pageBefore(KEY, cursor, 20));
+                        List<Long> expectedBefore = range(Math.max(1, cursor - 20), cursor - 1).reversed();
+                        if (!before.equals(expectedBefore)) failures.add("pageBefore(" + cursor + ") = " + before);
+                        List<Long> after = seqs(log.pageAfterSeq(KEY, cursor, 20));
+                        List<Long> expectedAfter = range(cursor + 1, Math.min(n, cursor + 20));
+                        if (!after.equals(expectedAfter)) failures.add("pageAfterSeq(" + cursor + ") = " + after);
+                        reads.incrementAndGet();
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+
+            for (long segment : closed) log.compact(segment);
+            done.set(true);
+            for (Thread reader : readers) reader.join();
+
+            assertThat(failures).isEmpty();
+            assertThat(log.compactable(Long.MAX_VALUE)).isEmpty();
+            // juntados de até 4 em 4: só sobram os .seg no índice e o .log ativo
+            String[] merged = dir.toFile().list((d, name) -> name.endsWith(".seg"));
+            assertThat(merged).hasSizeLessThanOrEqualTo(closed.size() / 2).hasSize(log.segmentCount() - 1);
+            assertThat(dir.toFile().list((d, name) -> name.endsWith(".log"))).hasSize(1);
+        }
+    }
+
+    @Test
+    void restartKeepsAppendingToTheActiveSegment() throws Exception {
+        for (int restart = 0; restart < 5; restart++) {
+            try (MessageLog log = new MessageLog(dir, 4096, 4)) {
+                log.append(message(restart + 1, restart + 1));
+                log.sync(log.endPosition());
+            }
+        }
+        try (MessageLog log = new MessageLog(dir, 4096, 4)) {
+            assertThat(log.segmentCount()).isEqualTo(1);
+            assertThat(dir.toFile().list()).containsExactly(String.format("%016d.log", 1));
+            assertThat(seqs(log.pageAfterSeq(KEY, 0, 10))).containsExactly(1L, 2L, 3L, 4L, 5L);
+        }
+    }
+
+    @Test
+    void filesCoveredByAMergedSegmentAreDroppedOnLoad() throws Exception {
+        try (MessageLog log = new MessageLog(dir, 2048, 4)) {
+            for (int i = 1; i <= 60; i++) log.append(message(i, i));
+            log.sync(log.endPosition());
+            for (long segment : log.compactable(Long.MAX_VALUE)) log.compact(segment);
+        }
+        String[] merged = dir.toFile().list((d, name) -> name.contains("-") && name.endsWith(".seg"));
+        assertThat(merged).isNotEmpty();
+        // queda depois do move da compactação: um original ainda no disco
+        String[] range = merged[0].substring(0, merged[0].length() - 4).split("-");
+        Path leftover = dir.resolve(String.format("%016d.log", Long.parseLong(range[1])));
+        Files.write(leftover, new byte[2048]);
+
+        try (MessageLog log = new MessageLog(dir, 2048, 4)) {
+            assertThat(leftover).doesNotExist();
+            assertThat(seqs(log.pageAfterSeq(KEY, 0, 100))).isEqualTo(range(1, 60));
+        }
+    }
+
+    @Test
+    void forEachSinceReplaysFromACheckpointAcrossRestart() throws Exception {
+        long checkpoint;
+        try (MessageLog log = new MessageLog(dir, 2048, 4)) {
+            for (int i = 1; i <= 40; i++) log.append(message(i, i));
+            List<MessageLog.Entry> all = new ArrayList<>();
+            log.forEachSince(0, all::add);
+            assertThat(all).hasSize(40);
+            checkpoint = all.get(24).end(); // depois da 25ª, possivelmente noutro segmento que a 1ª
+            log.sync(log.endPosition());
+        }
+
+        try (MessageLog log = new MessageLog(dir, 2048, 4)) {
+            List<MessageLog.Entry> replay = new ArrayList<>();
+            log.forEachSince(checkpoint, replay::add);
+            assertThat(replay).extracting(e -> e.message().id()).isEqualTo(range(26, 40));
+            // cada "end" é um checkpoint válido para o resto
+            List<Long> rest = new ArrayList<>();
+            log.forEachSince(replay.get(9).end(), e -> rest.add(e.message().id()));
+            assertThat(rest).isEqualTo(range(36, 40));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.backend.echo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashingTest {
+
+    private final PasswordHashing hashing = new PasswordHashing(new BCryptPasswordEncoder(5), 1, 4, 5,
+            new SimpleMeterRegistry());
+
+    @AfterEach
+    void stop() {
+        hashing.shutdown();
+    }
+
+    @Test
+    void rehashesWhenTheStoredCostIsHigherOrLower() {
+        String lower = new BCryptPasswordEncoder(4).encode("segredo");
+        String higher = new BCryptPasswordEncoder(6).encode("segredo");
+        String same = new BCryptPasswordEncoder(5).encode("segredo");
+
+        assertThat(hashing.verify("segredo", lower).rehash()).startsWith("$2a$05$");
+        assertThat(hashing.verify("segredo", higher).rehash()).startsWith("$2a$05$");
+        assertThat(hashing.verify("segredo", same).rehash()).isNull();
+        assertThat(hashing.verify("errada", higher)).isEqualTo(new PasswordHashing.Verification(false, null));
+    }
+}
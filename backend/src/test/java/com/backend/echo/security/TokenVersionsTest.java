@@ -0,0 +1,79 @@
+package com.backend.echo.security;
+
+import com.backend.echo.entity.User;
+import com.backend.echo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class TokenVersionsTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static User user(long id, int version) {
+        User u = new User();
+        u.setId(id);
+        u.setTokenVersion(version);
+        return u;
+    }
+
+    @Test
+    void bumpOnlyReachesTheCacheAfterCommit() {
+        when(userRepository.findTokenVersion(1L)).thenReturn(Optional.of(3));
+        TokenVersions versions = new TokenVersions(userRepository, 60_000);
+        assertThat(versions.isCurrent(1L, 3)).isTrue();
+
+        // transação que falha: nada chega ao cache, tokens atuais continuam valendo
+        TransactionSynchronizationManager.initSynchronization();
+        versions.bump(user(1, 3));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(versions.isCurrent(1L, 3)).isTrue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        versions.bump(user(1, 3));
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        assertThat(versions.isCurrent(1L, 3)).isFalse();
+        assertThat(versions.isCurrent(1L, 4)).isTrue();
+    }
+
+    @Test
+    void bumpOutsideATransactionIsRejected() {
+        TokenVersions versions = new TokenVersions(userRepository, 60_000);
+        assertThatThrownBy(() -> versions.bump(user(1, 0))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void newerTokenFromAnotherNodeRereadsTheDatabase() {
+        when(userRepository.findTokenVersion(1L)).thenReturn(Optional.of(3), Optional.of(4));
+        TokenVersions versions = new TokenVersions(userRepository, 60_000);
+        assertThat(versions.isCurrent(1L, 3)).isTrue();
+
+        // outro nó subiu para 4 e emitiu um token novo
+        assertThat(versions.isCurrent(1L, 4)).isTrue();
+        assertThat(versions.isCurrent(1L, 3)).isFalse();
+        verify(userRepository, times(2)).findTokenVersion(1L);
+    }
+
+    @Test
+    void expiredEntryIsReloaded() {
+        when(userRepository.findTokenVersion(1L)).thenReturn(Optional.of(3), Optional.of(4));
+        TokenVersions versions = new TokenVersions(userRepository, 0);
+        assertThat(versions.isCurrent(1L, 3)).isTrue();
+        // troca feita em outro nó: o token antigo cai na próxima leitura
+        assertThat(versions.isCurrent(1L, 3)).isFalse();
+    }
+}
@@ -0,0 +1,124 @@
+package com.backend.echo.service.impl;
+
+import com.backend.echo.cache.RecentMessagesCache;
+import com.backend.echo.cache.SocialGraphCache;
+import com.backend.echo.dto.ChatMessageDto;
+import com.backend.echo.dto.ConversationSyncDTO;
+import com.backend.echo.dto.MessageDTO;
+import com.backend.echo.dto.SyncRequestDTO;
+import com.backend.echo.entity.Message;
+import com.backend.echo.entity.User;
+import com.backend.echo.persistence.ConversationSequences;
+import com.backend.echo.persistence.MessageIdGenerator;
+import com.backend.echo.persistence.MessageStore;
+import com.backend.echo.repository.ConversationRepository;
+import com.backend.echo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversationSyncTest {
+
+    private static final int SENDERS = 4;
+    private static final int PER_SENDER = 150;
+    private static final int TOTAL = SENDERS * PER_SENDER;
+
+    /** Store em memória que demora um tempo aleatório antes de deixar a mensagem legível. */
+    private static final class SlowStore implements MessageStore {
+        final ConcurrentSkipListMap<Long, MessageDTO> bySeq = new ConcurrentSkipListMap<>();
+
+        @Override
+        public void store(Message m) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MICROSECONDS.toNanos(300)));
+            bySeq.put(m.getSeq(), new MessageDTO(m.getId(), m.getSender().getId(), m.getReceiver().getId(),
+                    m.getContent(), m.getTimestamp(), m.getMediaUrl(), m.getSeq()));
+        }
+
+        @Override
+        public List<MessageDTO> pageBefore(String conversationKey, long before, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public List<MessageDTO> pageAfterSeq(String conversationKey, long afterSeq, int limit) {
+            return bySeq.tailMap(afterSeq, false).values().stream().limit(limit).toList();
+        }
+
+        @Override
+        public long lastSeq(String conversationKey) {
+            return 0;
+        }
+    }
+
+    // buffer grande: o sync responde do RecentMessagesCache completo
+    @Test
+    void syncFromTheCacheNeverSkipsASeq() throws Exception {
+        RecentMessagesCache cache = new RecentMessagesCache(TOTAL, Long.MAX_VALUE, new SimpleMeterRegistry());
+        cache.mergeLatest("1_2", List.of(), true); // conversa nova: o buffer tem tudo
+        assertNoSeqSkipped(cache);
+    }
+
+    // buffer de 3: quase todo sync cai no store
+    @Test
+    void syncFromTheStoreNeverSkipsASeq() throws Exception {
+        assertNoSeqSkipped(new RecentMessagesCache(3, Long.MAX_VALUE, new SimpleMeterRegistry()));
+    }
+
+    private void assertNoSeqSkipped(RecentMessagesCache cache) throws Exception {
+        SlowStore store = new SlowStore();
+        ConversationSequences sequences = new ConversationSequences(store, new SimpleMeterRegistry());
+        SocialGraphCache socialGraph = mock(SocialGraphCache.class);
+        when(socialGraph.areFriends(anyLong(), anyLong())).thenReturn(true);
+        UserRepository users = mock(UserRepository.class);
+        when(users.getReferenceById(anyLong())).thenAnswer(inv -> {
+            User u = new User();
+            u.setId(inv.getArgument(0));
+            return u;
+        });
+        ChatServiceImpl chat = new ChatServiceImpl(socialGraph, users, store, new MessageIdGenerator(0), sequences, cache);
+        ConversationServiceImpl conversations = new ConversationServiceImpl(store, mock(ConversationRepository.class), cache, sequences);
+
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < SENDERS; t++) {
+            Thread sender = new Thread(() -> {
+                for (int i = 0; i < PER_SENDER; i++) {
+                    chat.processIncoming("1_2", ChatMessageDto.builder().receiverId(2L).content("oi " + i).build(), 1L);
+                }
+            });
+            sender.start();
+            senders.add(sender);
+        }
+
+        // o destinatário sincroniza em laço com o cursor na última seq recebida
+        ConcurrentLinkedQueue<String> skipped = new ConcurrentLinkedQueue<>();
+        long cursor = 0;
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (cursor < TOTAL && System.currentTimeMillis() < deadline) {
+            List<ConversationSyncDTO> delta = conversations.sync(2L, new SyncRequestDTO(Map.of(1L, cursor), 7));
+            for (ConversationSyncDTO d : delta) {
+                for (MessageDTO m : d.getMessages()) {
+                    if (m.getSeq() != cursor + 1) skipped.add("cursor " + cursor + " recebeu " + m.getSeq());
+                    cursor = m.getSeq();
+                }
+            }
+        }
+        for (Thread sender : senders) sender.join();
+
+        assertThat(skipped).isEmpty();
+        assertThat(cursor).isEqualTo(TOTAL);
+        assertThat(sequences.durable("1_2")).isEqualTo(TOTAL);
+    }
+}
@@ -0,0 +1,27 @@
+package com.backend.echo.service.impl;
+
+import com.backend.echo.service.MailService;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class VerificationCodesTest {
+
+    private final VerificationCodes codes = new VerificationCodes("segredo", 10, 5, mock(MailService.class));
+
+    @Test
+    void matchesOnlyTheSameCodeForTheSameUser() {
+        String hex = codes.hashHex(1L, "123456");
+        assertThat(codes.matchesHex(1L, " 123456 ", hex)).isTrue();
+        assertThat(codes.matchesHex(1L, "654321", hex)).isFalse();
+        assertThat(codes.matchesHex(2L, "123456", hex)).isFalse();
+    }
+
+    @Test
+    void legacyBcryptHashIsAMismatchNotAnError() {
+        String bcrypt = "$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy";
+        assertThat(codes.matchesHex(1L, "123456", bcrypt)).isFalse();
+        assertThat(codes.matchesHex(1L, "123456", null)).isFalse();
+    }
+}
@@ -0,0 +1,200 @@
+package com.backend.echo.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carga de chat contra um servidor já rodando: cria pares de amigos, abre uma sessão STOMP
+ * por par e cada uma envia mensagens em malha fechada (a próxima sai quando a anterior volta
+ * pelo tópico da conversa). Serve para comparar spring.threads.virtual.enabled=true/false.
+ *
+ * Não é um teste; rodar manualmente com o servidor no ar:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *     com.backend.echo.websocket.ChatLoadRunner http://localhost:8080 200 50
+ * </pre>
+ */
+public class ChatLoadRunner {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080";
+        int pairs = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int messages = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        String run = Long.toString(System.currentTimeMillis(), 36);
+
+        List<Pair> all = new ArrayList<>();
+        for (int i = 0; i < pairs; i++) all.add(Pair.create(base, run + "a" + i, run + "b" + i));
+        System.out.printf("%d pares criados; enviando %d mensagens por par%n", pairs, messages);
+
+        long[] latencies = new long[pairs * messages];
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(pairs);
+
+        long start = System.nanoTime();
+        for (Pair p : all) {
+            new Sender(base, p, messages, latencies, recorded, failed, done).start();
+        }
+        boolean finished = done.await(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        int n = recorded.get();
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        System.out.printf("%s: %d mensagens em %.1f s (%.0f msg/s), falhas %d%n",
+                finished ? "ok" : "TIMEOUT", n, elapsed / 1e9, n / (elapsed / 1e9), failed.get());
+        if (n > 0) {
+            System.out.printf("latência p50 %.1f ms  p99 %.1f ms  max %.1f ms%n",
+                    sorted[n / 2] / 1e6, sorted[(int) (n * 0.99)] / 1e6, sorted[n - 1] / 1e6);
+        }
+        System.exit(0);
+    }
+
+    private record Pair(String tokenA, long idA, long idB) {
+        static Pair create(String base, String a, String b) throws Exception {
+            String tokenA = register(base, a);
+            String tokenB = register(base, b);
+            long idA = me(base, tokenA);
+            long idB = me(base, tokenB);
+            post(base + "/friends/requests?toUserId=" + idB, tokenA);
+            for (JsonNode r : get(base + "/friends/requests", tokenB).path("requests")) {
+                if (r.path("requester").path("id").asLong() == idA) {
+                    post(base + "/friends/requests/" + r.path("id").asLong() + "/accept", tokenB);
+                }
+            }
+            return new Pair(tokenA, idA, idB);
+        }
+
+        String conversationKey() {
+            return Math.min(idA, idB) + "_" + Math.max(idA, idB);
+        }
+    }
+
+    /** Uma sessão STOMP que envia a próxima mensagem quando recebe o eco da anterior. */
+    private static final class Sender implements WebSocket.Listener {
+        private final String base;
+        private final Pair pair;
+        private final int messages;
+        private final long[] latencies;
+        private final AtomicInteger recorded;
+        private final AtomicInteger failed;
+        private final CountDownLatch done;
+        private final StringBuilder frame = new StringBuilder();
+        private WebSocket ws;
+        private int sent;
+        private long sentAt;
+
+        Sender(String base, Pair pair, int messages, long[] latencies,
+               AtomicInteger recorded, AtomicInteger failed, CountDownLatch done) {
+            this.base = base;
+            this.pair = pair;
+            this.messages = messages;
+            this.latencies = latencies;
+            this.recorded = recorded;
+            this.failed = failed;
+            this.done = done;
+        }
+
+        void start() {
+            String url = base.replaceFirst("^http", "ws") + "/ws/websocket";
+            HTTP.newWebSocketBuilder().buildAsync(URI.create(url), this).whenComplete((socket, e) -> {
+                if (e != null) {
+                    failed.incrementAndGet();
+                    done.countDown();
+                    return;
+                }
+                ws = socket;
+                send("CONNECT\naccept-version:1.2\nheart-beat:0,0\nAuthorization:Bearer " + pair.tokenA() + "\n\n\0");
+            });
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            frame.append(data);
+            if (last) {
+                String f = frame.toString();
+                frame.setLength(0);
+                handle(f);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            failed.incrementAndGet();
+            done.countDown();
+        }
+
+        private void handle(String f) {
+            if (f.startsWith("CONNECTED")) {
+                send("SUBSCRIBE\nid:0\ndestination:/topic/chat/" + pair.conversationKey() + "\n\n\0");
+                sendNext();
+            } else if (f.startsWith("MESSAGE")) {
+                latencies[recorded.getAndIncrement()] = System.nanoTime() - sentAt;
+                if (sent < messages) {
+                    sendNext();
+                } else {
+                    ws.sendClose(WebSocket.NORMAL_CLOSURE, "");
+                    done.countDown();
+                }
+            } else if (f.startsWith("ERROR")) {
+                failed.incrementAndGet();
+                done.countDown();
+            }
+        }
+
+        private void sendNext() {
+            sent++;
+            sentAt = System.nanoTime();
+            send("SEND\ndestination:/app/chat/" + pair.conversationKey() + "\ncontent-type:application/json\n\n"
+                    + "{\"receiverId\":" + pair.idB() + ",\"content\":\"carga " + sent + "\"}\0");
+        }
+
+        private void send(String text) {
+            CompletableFuture<WebSocket> f = ws.sendText(text, true);
+            f.join();
+        }
+    }
+
+    private static String register(String base, String username) throws Exception {
+        String body = "{\"username\":\"" + username + "\",\"password\":\"carga\",\"email\":\"" + username + "@carga.local\"}";
+        HttpRequest req = HttpRequest.newBuilder(URI.create(base + "/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return JSON.readTree(HTTP.send(req, HttpResponse.BodyHandlers.ofString()).body()).path("token").asText();
+    }
+
+    private static long me(String base, String token) throws Exception {
+        return get(base + "/user/me", token).path("id").asLong();
+    }
+
+    private static JsonNode get(String url, String token) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url)).header("Authorization", "Bearer " + token).GET().build();
+        return JSON.readTree(HTTP.send(req, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static void post(String url, String token) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url)).header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+        HTTP.send(req, HttpResponse.BodyHandlers.discarding());
+    }
+}
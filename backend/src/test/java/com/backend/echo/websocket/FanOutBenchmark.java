@@ -0,0 +1,95 @@
+package com.backend.echo.websocket;
+
+import com.backend.echo.dto.MessageDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Compara convertAndSendToUser por destinatário com o FanOutPublisher (serializa uma vez)
+ * num broadcast para 1k destinatários. O canal descarta as mensagens, então o número
+ * medido é o custo do lado de quem publica: serialização, headers e envio ao canal.
+ *
+ * Não é um teste; rodar manualmente:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.backend.echo.websocket.FanOutBenchmark
+ * </pre>
+ */
+public class FanOutBenchmark {
+
+    private static final int RECIPIENTS = 1000;
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 5000;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        MessageChannel channel = new MessageChannel() {
+            @Override
+            public boolean send(Message<?> message, long timeout) {
+                sink += ((byte[]) message.getPayload()).length;
+                return true;
+            }
+        };
+        SimpMessagingTemplate template = new SimpMessagingTemplate(channel);
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        template.setMessageConverter(converter);
+        FanOutPublisher fanOut = new FanOutPublisher(template, objectMapper);
+
+        String[] users = new String[RECIPIENTS];
+        for (int i = 0; i < RECIPIENTS; i++) users[i] = "user" + i;
+        MessageDTO payload = MessageDTO.builder()
+                .id(123456789012345L).senderId(1L).receiverId(2L)
+                .content("Mensagem de exemplo com um tamanho parecido com o de uma conversa real, ".repeat(3))
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        Runnable perRecipient = () -> {
+            for (String u : users) template.convertAndSendToUser(u, "/queue/messages", payload);
+        };
+        Runnable serializeOnce = () -> {
+            Message<byte[]> prepared = fanOut.prepare(payload);
+            for (String u : users) fanOut.sendToUser(u, "/queue/messages", prepared);
+        };
+
+        for (int round = 0; round < 2; round++) {
+            run("convertAndSendToUser", perRecipient);
+            run("FanOutPublisher", serializeOnce);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static void run(String name, Runnable broadcast) {
+        for (int i = 0; i < WARMUP; i++) broadcast.run();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] latencies = new long[ITERATIONS];
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            broadcast.run();
+            latencies[i] = System.nanoTime() - t0;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-22s %8.1f KB/broadcast  %10.1f MB/s  p50 %7.1f us  p99 %7.1f us%n",
+                name,
+                allocated / (double) ITERATIONS / 1024,
+                allocated / (elapsed / 1e9) / (1024 * 1024),
+                latencies[ITERATIONS / 2] / 1e3,
+                latencies[(int) (ITERATIONS * 0.99)] / 1e3);
+    }
+}
@@ -8,12 +8,7 @@ import Register from "./pages/register/Register.jsx";
 import ForgotPassword from "./pages/forgot/ForgotPassword.jsx";
 import api from "./services/api/api";
 import wsClient, { announcePresence } from "./services/ws/client"; // use concrete client
-
-function addCacheBuster(url) {
-    if (!url) return url;
-    const sep = url.includes("?") ? "&" : "?";
-    return `${url}${sep}v=${Date.now()}`;
-}
+import { addCacheBuster } from "./utils/avatar";
 
 function App() {
     const navigate = useNavigate();
@@ -8,18 +8,27 @@ export function useFriendsAndChat(token, meId) {
     const [pendingRequests, setPendingRequests] = useState([]);
     const [messages, setMessages] = useState({}); // { conversationId: [msg, ...] }
 
+    // lists are paginated: follow nextAfter until the last page
+    const fetchAllPages = async (path, key) => {
+        const all = [];
+        let after = null;
+        do {
+            const res = await axios.get(`${import.meta.env.VITE_API_BASE_URL}${path}`, {
+                headers: { Authorization: `Bearer ${token}` },
+                params: after != null ? { after, limit: 100 } : { limit: 100 }
+            });
+            all.push(...(res.data?.[key] || []));
+            after = res.data?.nextAfter ?? null;
+        } while (after != null);
+        return all;
+    };
+
     const fetchFriends = async () => {
-        const res = await axios.get(`${import.meta.env.VITE_API_BASE_URL}/friends/list`, {
-            headers: { Authorization: `Bearer ${token}` }
-        });
-        setFriends(res.data);
+        setFriends(await fetchAllPages("/friends/list", "friends"));
     };
 
     const fetchRequests = async () => {
-        const res = await axios.get(`${import.meta.env.VITE_API_BASE_URL}/friends/requests`, {
-            headers: { Authorization: `Bearer ${token}` }
-        });
-        setPendingRequests(res.data);
+        setPendingRequests(await fetchAllPages("/friends/requests", "requests"));
     };
 
     const subscribeConversation = (conversationId) => {
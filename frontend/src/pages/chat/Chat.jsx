@@ -9,6 +9,7 @@ import ws from "../../services/ws";
 import CallManager from "../../services/call/CallManager.js";
 import api from "../../services/api/api";
 import FriendRequestsModal from "../../components/FriendRequestsModal";
+import { addCacheBuster } from "../../utils/avatar";
 
 const CALLING_SOUND_URL = `${(import.meta.env && import.meta.env.BASE_URL) ? import.meta.env.BASE_URL : "/"}assets/calling-mp3.mp3`;
 const MESSAGE_SOUND_URL = `${(import.meta.env && import.meta.env.BASE_URL) ? import.meta.env.BASE_URL : "/"}assets/message-mp3.mp3`;
@@ -19,12 +20,6 @@ function conversationIdOf(a, b) {
     return `${min}_${max}`;
 }
 
-function addCacheBuster(url) {
-    if (!url) return url;
-    const sep = url.includes("?") ? "&" : "?";
-    return `${url}${sep}v=${Date.now()}`;
-}
-
 // Normalize presence values for display; keep unknown values so we don't coerce them to offline.
 function normalizePresenceValue(raw) {
     if (!raw) return "offline";
@@ -46,6 +41,13 @@ function publicAvatarUrlFor(userId) {
     }
 }
 
+// /media avatars have downsized variants; lists ask for the 128px one (~40px circles on 2x screens).
+function avatarThumb(url, size = 128) {
+    if (!url || !url.includes("/media/avatar/")) return url;
+    const sep = url.includes("?") ? "&" : "?";
+    return `${url}${sep}size=${size}`;
+}
+
 function Toast({ toast, onClose }) {
     useEffect(() => {
         const t = setTimeout(onClose, toast.duration || 3500);
@@ -146,16 +148,28 @@ export default function Chat({ user, onUserUpdate, onLogout }) {
     }, []);
 
     // --- Loaders ---
+    // lists are paginated by cursor: follow nextAfter until the last page
+    const fetchAllPages = async (url, key) => {
+        const all = [];
+        let after = null;
+        do {
+            const { data } = await api.get(url, { params: after != null ? { after, limit: 100 } : { limit: 100 } });
+            all.push(...(data?.[key] || []));
+            after = data?.nextAfter ?? null;
+        } while (after != null);
+        return all;
+    };
+
     const loadFriends = async () => {
         try {
-            const { data } = await api.get("/friends/list");
-            const items = (data || []).map(u => {
+            const friends = await fetchAllPages("/friends/list", "friends");
+            const items = friends.map(u => {
                 // prefer server-provided avatarUrl; fallback to constructed public /media/avatar/{id}
                 const avatarUrl = u.avatarUrl && String(u.avatarUrl).trim() ? u.avatarUrl : publicAvatarUrlFor(u.id);
                 return {
                     id: u.id,
                     name: u.username || u.email || String(u.id),
-                    avatar: avatarUrl ? addCacheBuster(avatarUrl) : defaultAvatar
+                    avatar: avatarUrl ? avatarThumb(addCacheBuster(avatarUrl)) : defaultAvatar
                 };
             });
             setUsers(items);
@@ -170,7 +184,7 @@ export default function Chat({ user, onUserUpdate, onLogout }) {
             const { data } = await api.get("/friends/block");
             const ids = new Set((data || []).map(b => b?.blocked?.id || b?.blockedId).filter(Boolean));
             setBlockedIds(ids);
-            const details = (data || []).map(b => b?.blocked ? { id: b.blocked.id, username: b.blocked.username, avatar: b.blocked.avatarUrl ? addCacheBuster(b.blocked.avatarUrl) : defaultAvatar } : { id: b.blockedId, username: String(b.blockedId), avatar: defaultAvatar });
+            const details = (data || []).map(b => b?.blocked ? { id: b.blocked.id, username: b.blocked.username, avatar: b.blocked.avatarUrl ? avatarThumb(addCacheBuster(b.blocked.avatarUrl)) : defaultAvatar } : { id: b.blockedId, username: String(b.blockedId), avatar: defaultAvatar });
             setBlockedUsers(details);
         } catch (err) {
             console.warn("loadBlocked error", err);
@@ -179,14 +193,14 @@ export default function Chat({ user, onUserUpdate, onLogout }) {
 
     const fetchRequests = async () => {
         try {
-            const { data } = await api.get("/friends/requests");
+            const requests = await fetchAllPages("/friends/requests", "requests");
             const map = new Map();
-            (data || []).forEach(r => {
+            requests.forEach(r => {
                 if (!map.has(r.id)) map.set(r.id, {
                     requestId: r.id,
                     fromId: r.requester?.id,
                     fromUsername: r.requester?.username || r.requester?.email || "Usuário",
-                    avatar: r.requester?.avatarUrl ? addCacheBuster(r.requester.avatarUrl) : defaultAvatar,
+                    avatar: r.requester?.avatarUrl ? avatarThumb(addCacheBuster(r.requester.avatarUrl)) : defaultAvatar,
                     createdAt: r.createdAt
                 });
             });
@@ -392,7 +406,7 @@ export default function Chat({ user, onUserUpdate, onLogout }) {
             if (!targetId) { alert("Usuário não encontrado."); return; }
             await api.post(`/friends/requests`, { toUserId: targetId });
             await fetchRequests();
-            pushToast({ title: "Pedido enviado", message: `Convite para ${data.username || name}`, avatar: data?.avatarUrl ? addCacheBuster(data.avatarUrl) : defaultAvatar });
+            pushToast({ title: "Pedido enviado", message: `Convite para ${data.username || name}`, avatar: data?.avatarUrl ? avatarThumb(addCacheBuster(data.avatarUrl), 48) : defaultAvatar });
             setSearch("");
         } catch (err) {
             const msg = err?.response?.data?.message || err?.message || "Não foi possível enviar o pedido.";
@@ -2,14 +2,9 @@ import React, { useEffect, useState } from "react";
 import { useNavigate, useSearchParams } from "react-router-dom";
 import api from "../../services/api/api";
 import defaultAvatar from "../../assets/default-avatar.png";
+import { addCacheBuster } from "../../utils/avatar";
 import "./style.css";
 
-function addCacheBuster(url) {
-    if (!url) return url;
-    const sep = url.includes("?") ? "&" : "?";
-    return `${url}${sep}v=${Date.now()}`;
-}
-
 export default function Login({ onLogin }) {
     const navigate = useNavigate();
     const [params] = useSearchParams();
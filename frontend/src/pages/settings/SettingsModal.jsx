@@ -6,6 +6,7 @@ import api from "../../services/api/api";
 import AvatarUploader from "../../components/Avatar/AvatarUploader";
 import defaultAvatar from "../../assets/default-avatar.png";
 import ws from "../../services/ws";
+import { addCacheBuster } from "../../utils/avatar";
 import "./settingsmodal.css";
 
 const TABS = [
@@ -15,12 +16,6 @@ const TABS = [
     { id: "mic", label: "Microfone" },
 ];
 
-function addCacheBuster(url) {
-    if (!url) return url;
-    const sep = url.includes("?") ? "&" : "?";
-    return `${url}${sep}v=${Date.now()}`;
-}
-
 function maskEmail(email) {
     if (!email) return "";
     const [user, domain] = email.split("@");
@@ -274,9 +269,11 @@ export default function SettingsModal({ user, onClose, onUpdated }) {
 
         setLoading(true);
         try {
-            await api.patch("/user/me", formData, {
+            const { data: patched } = await api.patch("/user/me", formData, {
                 headers: { "Content-Type": "multipart/form-data" }
             });
+            // trocar o username invalida o token antigo; o backend devolve um novo
+            if (patched?.token) localStorage.setItem("token", patched.token);
 
             const { data } = await api.get("/user/me");
             const freshUrl = data?.avatarUrl || data?.avatar || "";
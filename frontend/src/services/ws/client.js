@@ -146,7 +146,7 @@ export function connect({ token, meId } = {}) {
         }
 
         try {
-            this.subscribe(`/topic/presence`, msg => {
+            this.subscribe(`/user/queue/presence`, msg => {
                 try { const data = JSON.parse(msg.body); emit("presence", data); } catch {}
             });
         } catch (err) {}
@@ -0,0 +1,6 @@
+// /media/avatar responde com ETag (revalida com 304); URL única por acesso jogaria o cache fora
+export function addCacheBuster(url) {
+    if (!url || url.includes("/media/avatar/")) return url;
+    const sep = url.includes("?") ? "&" : "?";
+    return `${url}${sep}v=${Date.now()}`;
+}